@@ -0,0 +1,54 @@
+package com.github.florent37.materialviewpager.benchmarks;
+
+import com.github.florent37.materialviewpager.HeaderScrollModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utils.colorWithAlpha & Utils.minMax (delegating to HeaderScrollModel), called on each scroll frame by setColor
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ColorBenchmark {
+
+    private static final int COLOR = 0xFF3F51B5;
+
+    private float[] percents;
+
+    @Setup
+    public void setup() {
+        int[] yOffsets = ScrollTraces.toYOffsets(ScrollTraces.dragFlingAndBack(4096));
+        percents = new float[yOffsets.length];
+        for (int i = 0; i < yOffsets.length; ++i) {
+            //a 200dp header
+            percents[i] = yOffsets[i] / 200f;
+        }
+    }
+
+    @Benchmark
+    public int colorWithAlpha() {
+        int result = 0;
+        for (float percent : percents) {
+            result ^= HeaderScrollModel.colorWithAlpha(COLOR, HeaderScrollModel.minMax(0, percent, 1));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public float minMax() {
+        float result = 0;
+        for (float percent : percents) {
+            result += HeaderScrollModel.minMax(0, percent, 1);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.florent37.materialviewpager.benchmarks;
+
+import com.github.florent37.materialviewpager.HeaderMetrics;
+import com.github.florent37.materialviewpager.HeaderScrollModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The percent, parallax, tabs & logo interpolation computed by MaterialViewPagerAnimator.onMaterialScrolled
+ * One operation replays the whole trace
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HeaderScrollModelBenchmark {
+
+    @Param({"false", "true"})
+    public boolean hideToolbarAndTitle;
+
+    //path of a trace exported by MaterialViewPagerScrollTrace.writeTo (-p traceFile=...), empty to use the generated one
+    @Param({""})
+    public String traceFile;
+
+    private int[] yOffsets;
+    private HeaderMetrics metrics;
+    private HeaderScrollModel model;
+
+    @Setup
+    public void setup() throws IOException {
+        if (traceFile.isEmpty())
+            yOffsets = ScrollTraces.toYOffsets(ScrollTraces.dragFlingAndBack(4096));
+        else
+            yOffsets = ScrollTraces.load(traceFile);
+
+        //positions of the sample header, on a xxhdpi device
+        metrics = new HeaderMetrics();
+        metrics.set(168, 0, 312, 456, 0);
+        metrics.setLogo(540, 240, 220, 84, 0.6f);
+
+        model = new HeaderScrollModel(200, 600, 1.5f, hideToolbarAndTitle, false);
+    }
+
+    @Benchmark
+    public float compute() {
+        HeaderScrollModel model = this.model;
+        float result = 0;
+        for (int yOffset : yOffsets) {
+            if (model.compute(yOffset, metrics)) {
+                HeaderScrollModel.Output output = model.output;
+                result += output.percent + output.logoScale + output.tabsTranslationY;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.florent37.materialviewpager.benchmarks;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Scroll traces used as benchmarks inputs, one event per frame
+ * Shaped like the ones recorded on a device (slow drag, fling decelerating, scroll back to top)
+ * Generated with a fixed seed, so each run receives the same events
+ *
+ * A trace exported from a device by MaterialViewPagerScrollTrace.writeTo can be used instead, with load
+ */
+public class ScrollTraces {
+
+    //a fling on a 60fps device lasts around 2s
+    public static final int FLING_FRAMES = 120;
+
+    //header of the MaterialViewPagerScrollTrace binary format
+    private static final int TRACE_MAGIC = 0x4D565054;
+    private static final int TRACE_VERSION = 1;
+
+    /**
+     * @return the dy of each RecyclerView.OnScrollListener.onScrolled event
+     */
+    public static int[] dragFlingAndBack(int events) {
+        int[] dys = new int[events];
+        long seed = 42;
+        int yOffset = 0;
+        int i = 0;
+        while (i < events) {
+            //slow drag
+            for (int j = 0; j < 30 && i < events; ++j, ++i) {
+                seed = next(seed);
+                dys[i] = 2 + (int) ((seed >>> 16) % 6);
+                yOffset += dys[i];
+            }
+
+            //fling, decelerating
+            float velocity = 80;
+            for (int j = 0; j < FLING_FRAMES && i < events; ++j, ++i) {
+                dys[i] = Math.round(velocity);
+                yOffset += dys[i];
+                velocity *= 0.96f;
+            }
+
+            //scroll back to the top
+            while (yOffset > 0 && i < events) {
+                seed = next(seed);
+                int dy = Math.min(yOffset, 10 + (int) ((seed >>> 16) % 40));
+                dys[i++] = -dy;
+                yOffset -= dy;
+            }
+        }
+        return dys;
+    }
+
+    /**
+     * @return the cumulated yOffsets of the dys
+     */
+    public static int[] toYOffsets(int[] dys) {
+        int[] yOffsets = new int[dys.length];
+        int yOffset = 0;
+        for (int i = 0; i < dys.length; ++i) {
+            yOffset += dys[i];
+            yOffsets[i] = yOffset;
+        }
+        return yOffsets;
+    }
+
+    /**
+     * Read the yOffsets of a trace exported by MaterialViewPagerScrollTrace.writeTo
+     * (int magic, int version, int count, then count * (long timestampNanos, int slot, float yOffset))
+     */
+    public static int[] load(String path) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(path));
+        try {
+            if (in.readInt() != TRACE_MAGIC)
+                throw new IOException(path + " is not a MaterialViewPager scroll trace");
+            int version = in.readInt();
+            if (version != TRACE_VERSION)
+                throw new IOException("unsupported scroll trace version " + version);
+            int count = in.readInt();
+            int[] yOffsets = new int[count];
+            for (int i = 0; i < count; ++i) {
+                in.readLong(); //timestamp
+                in.readInt(); //slot
+                yOffsets[i] = (int) in.readFloat();
+            }
+            return yOffsets;
+        } finally {
+            in.close();
+        }
+    }
+
+    //linear congruential generator, same constants as java.util.Random
+    private static long next(long seed) {
+        return (seed * 0x5DEECE66DL + 0xBL) & ((1L << 48) - 1);
+    }
+}
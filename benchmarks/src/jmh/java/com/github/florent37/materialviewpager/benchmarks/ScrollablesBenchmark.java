@@ -0,0 +1,64 @@
+package com.github.florent37.materialviewpager.benchmarks;
+
+import com.github.florent37.materialviewpager.MaterialViewPagerScrollables;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The offset bookkeeping done on each RecyclerView scroll event, with the MaterialViewPagerScrollables methods
+ * called by MaterialViewPagerAnimator: the listener saves the reported yOffset of its slot,
+ * then the offset is dispatched to the other slots (only the scroll of the views is left out)
+ * One operation replays the whole trace
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScrollablesBenchmark {
+
+    //number of pages of the ViewPager
+    @Param({"4", "16"})
+    public int pages;
+
+    private int[] dys;
+    private MaterialViewPagerScrollables scrollables;
+
+    @Setup
+    public void setup() {
+        dys = ScrollTraces.dragFlingAndBack(4096);
+
+        scrollables = new MaterialViewPagerScrollables();
+        for (int i = 0; i < pages; ++i) {
+            //views can't be created on the JVM, the slots are only used for their offsets
+            scrollables.register(null, 0);
+        }
+    }
+
+    @Benchmark
+    public int onScrolled() {
+        MaterialViewPagerScrollables scrollables = this.scrollables;
+        int sourceSlot = 0;
+        int result = 0;
+        for (int dy : dys) {
+            //registerRecyclerView listener
+            int yOffset = scrollables.addReportedYOffset(sourceSlot, dy);
+
+            //dispatchScrollOffset & setScrollOffset, the slots have no view on the JVM
+            for (int slot = 0, size = scrollables.size(); slot < size; ++slot) {
+                if (slot != sourceSlot && scrollables.needsSync(slot, yOffset)) {
+                    scrollables.setSyncedYOffset(slot, yOffset);
+                    ++result;
+                }
+            }
+        }
+        return result;
+    }
+}
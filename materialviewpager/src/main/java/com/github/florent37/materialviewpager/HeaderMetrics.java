@@ -0,0 +1,64 @@
+package com.github.florent37.materialviewpager;
+
+/**
+ * Snapshot of the MaterialViewPager's header views positions, used by MaterialViewPagerAnimator during scroll
+ * Computed once per layout, so scroll events do not query the views
+ *
+ * Only uses plain java, filled by MaterialViewPagerAnimator from the header views
+ */
+public class HeaderMetrics {
+
+    public int toolbarBottom;
+    public int toolbarLayoutTop;
+    public int toolbarLayoutHeight;
+    public int tabsTop;
+    public int headerBackgroundTop;
+
+    //intial distance between tabs & toolbar
+    public float initialDistance;
+
+    //positions used to move the logo into the toolbar
+    public float originalTitleX;
+    public float originalTitleY;
+    public float finalTitleX;
+    public float finalTitleY;
+    public float finalScale;
+
+    private boolean valid = false;
+
+    /**
+     * Save the header views positions
+     * Call it after each layout
+     */
+    public void set(int toolbarBottom, int toolbarLayoutTop, int toolbarLayoutHeight, int tabsTop, int headerBackgroundTop) {
+        this.toolbarBottom = toolbarBottom;
+        this.toolbarLayoutTop = toolbarLayoutTop;
+        this.toolbarLayoutHeight = toolbarLayoutHeight;
+        this.tabsTop = tabsTop;
+        this.headerBackgroundTop = headerBackgroundTop;
+
+        initialDistance = tabsTop - toolbarBottom;
+
+        //before the first layout (ex: after an orientation change), views are not placed
+        //and positions can't be used to compute the scroll percent
+        valid = toolbarBottom != 0 && initialDistance != 0;
+    }
+
+    /**
+     * Save the logo positions, at the top of the header and inside the toolbar
+     */
+    public void setLogo(float originalTitleX, float originalTitleY, float finalTitleX, float finalTitleY, float finalScale) {
+        this.originalTitleX = originalTitleX;
+        this.originalTitleY = originalTitleY;
+        this.finalTitleX = finalTitleX;
+        this.finalTitleY = finalTitleY;
+        this.finalScale = finalScale;
+    }
+
+    /**
+     * @return true if the header has been laid out
+     */
+    public boolean isValid() {
+        return valid;
+    }
+}
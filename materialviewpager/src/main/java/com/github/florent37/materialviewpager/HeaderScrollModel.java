@@ -0,0 +1,329 @@
+package com.github.florent37.materialviewpager;
+
+/**
+ * The scroll math of the MaterialViewPager header, without any View
+ *
+ * From a yOffset and the HeaderMetrics, compute the target values of the header views into an Output
+ * (parallax, scroll percent, tabs translation, logo interpolation, toolbar follow)
+ * MaterialViewPagerAnimator then applies the Output on the views
+ *
+ * Only uses plain java, so it can be tested or benchmarked on a JVM
+ */
+public class HeaderScrollModel {
+
+    //Output.colorMode values
+    public static final int COLOR_NONE = 0;
+    //change the header colors to Output.colorPercent
+    public static final int COLOR_PERCENT = 1;
+    //animate the header colors from Output.colorPercent to 0
+    public static final int COLOR_ANIMATE_HIDE = 2;
+
+    //max scroll used to compute the percent (the header height, in dp)
+    private final float scrollMax;
+
+    //max scroll dispatched to the other scrollables (in px)
+    private final float scrollMaxPx;
+
+    private final float parallaxHeaderFactor;
+    private final boolean hideToolbarAndTitle;
+    private final boolean toolbarTransparent;
+
+    private float lastYOffset = -1; //the current yOffset
+    private float lastPercent = 0; //the current Percent
+
+    //the last translationY of the tabs
+    private float tabsTranslationY = 0;
+
+    //the toolbar enter animator has been started (and not cancelled)
+    private boolean hasToolbarAnimator = false;
+    //the toolbar enter animator has been started during the current compute
+    private boolean toolbarAnimatorStartedNow = false;
+
+    private boolean followScrollToolbarIsVisible = false;
+    private float firstScrollValue = Float.MIN_VALUE;
+    private boolean justToolbarAnimated = false;
+
+    //reused on each compute, to avoid allocations during scroll
+    public final Output output = new Output();
+
+    /**
+     * @param scrollMax            max scroll used to compute the percent (the header height, in dp)
+     * @param scrollMaxPx          max scroll dispatched to the other scrollables (in px)
+     * @param parallaxHeaderFactor the header background moves parallaxHeaderFactor slower than the scroll, >= 1
+     * @param hideToolbarAndTitle  if true, the toolbar follows the scroll
+     * @param toolbarTransparent   if true, the toolbar is only colored after its enter animation
+     */
+    public HeaderScrollModel(float scrollMax, float scrollMaxPx, float parallaxHeaderFactor, boolean hideToolbarAndTitle, boolean toolbarTransparent) {
+        this.scrollMax = scrollMax;
+        this.scrollMaxPx = scrollMaxPx;
+        this.parallaxHeaderFactor = parallaxHeaderFactor;
+        this.hideToolbarAndTitle = hideToolbarAndTitle;
+        this.toolbarTransparent = toolbarTransparent;
+    }
+
+    /**
+     * Compute the header values for a new yOffset into output
+     * output.headerBackgroundTranslationY and output.scrollablesYOffset are always computed
+     *
+     * @param yOffset the scroller current yOffset
+     * @param metrics the header positions
+     * @return false if the header can't be computed (not laid out yet), then only the parallax & scrollables offset are set
+     */
+    public boolean compute(float yOffset, HeaderMetrics metrics) {
+        Output out = output;
+        resetToolbarOutput();
+
+        float scrollTop = -yOffset;
+
+        //parallax scroll of the header background, never moved below its top (y=0)
+        //a parallaxHeaderFactor of 0 doesn't move it
+        float headerTranslationY = parallaxHeaderFactor != 0 ? scrollTop / parallaxHeaderFactor : 0;
+        if (metrics.headerBackgroundTop + headerTranslationY >= 0)
+            headerTranslationY = -metrics.headerBackgroundTop;
+        out.headerBackgroundTranslationY = headerTranslationY;
+
+        //the new offset of all registered scrollables
+        out.scrollablesYOffset = minMax(0, yOffset, scrollMaxPx);
+
+        float percent = yOffset / scrollMax;
+
+        if (percent != 0) {
+            //header not laid out yet (ex: orientation change), the percent can't be computed
+            if (!metrics.isValid())
+                return false;
+
+            //distance between pager & toolbar
+            float newDistance = metrics.tabsTop + tabsTranslationY - metrics.toolbarBottom;
+
+            percent = 1 - newDistance / metrics.initialDistance;
+        }
+
+        //fix quick scroll
+        if (percent == 0 && hasToolbarAnimator) {
+            cancelToolbarAnimator();
+            setToolbarLayoutTranslationY(0);
+        }
+
+        percent = minMax(0, percent, 1);
+        out.percent = percent;
+
+        //colors of toolbar & viewpager indicator & statusBackground
+        out.colorMode = COLOR_NONE;
+        if (!toolbarTransparent) {
+            out.colorMode = COLOR_PERCENT;
+            out.colorPercent = percent;
+            out.colorToolbarJoinsTabs = toolbarJoinsTabs(metrics);
+        } else if (justToolbarAnimated) {
+            if (toolbarJoinsTabs(metrics)) {
+                out.colorMode = COLOR_PERCENT;
+                out.colorPercent = 1;
+                out.colorToolbarJoinsTabs = true;
+            } else if (lastPercent != percent) {
+                out.colorMode = COLOR_ANIMATE_HIDE;
+                out.colorPercent = lastPercent;
+            }
+        }
+
+        lastPercent = percent; //save the percent
+
+        //move the viewpager indicator, when the tabs reach the toolbar, stick them below the toolbar
+        out.moveTabs = scrollTop <= 0;
+        if (out.moveTabs) {
+            float ty = scrollTop;
+            if (metrics.tabsTop + ty < metrics.toolbarBottom) {
+                ty = metrics.toolbarBottom - metrics.tabsTop;
+            }
+            tabsTranslationY = ty;
+            out.tabsTranslationY = ty;
+        }
+
+        //move the header logo to toolbar
+        out.logoAlpha = 1 - percent;
+        out.logoTranslationY = (metrics.finalTitleY - metrics.originalTitleY) * percent;
+        out.logoTranslationX = (metrics.finalTitleX - metrics.originalTitleX) * percent;
+        out.logoScale = (1 - percent) * (1 - metrics.finalScale) + metrics.finalScale;
+
+        if (hideToolbarAndTitle) {
+            boolean scrollUp = lastYOffset < yOffset;
+
+            if (scrollUp) {
+                followScrollToolbar(yOffset, metrics);
+            } else {
+                scrollDownToolbar(yOffset, metrics);
+            }
+        }
+
+        if (hasToolbarAnimator && percent < 1) {
+            cancelToolbarAnimator();
+        }
+
+        out.startToolbarEnterAnimation = hasToolbarAnimator && toolbarAnimatorStartedNow;
+
+        lastYOffset = yOffset;
+
+        return true;
+    }
+
+    /**
+     * Compute the toolbar values when the user scrolls down, without computing the whole header
+     */
+    public void scrollDown(float yOffset, HeaderMetrics metrics) {
+        resetToolbarOutput();
+        scrollDownToolbar(yOffset, metrics);
+        output.startToolbarEnterAnimation = hasToolbarAnimator && toolbarAnimatorStartedNow;
+    }
+
+    /**
+     * Compute the toolbar values to follow the current scroll, without computing the whole header
+     */
+    public void followScrollToolbarLayout(float yOffset, HeaderMetrics metrics) {
+        resetToolbarOutput();
+        followScrollToolbar(yOffset, metrics);
+    }
+
+    /**
+     * Must be called when the toolbar enter animation ended
+     */
+    public void onToolbarEnterAnimationEnd() {
+        followScrollToolbarIsVisible = true;
+        firstScrollValue = Float.MIN_VALUE;
+        justToolbarAnimated = true;
+    }
+
+    public boolean toolbarJoinsTabs(HeaderMetrics metrics) {
+        return (metrics.toolbarBottom == metrics.tabsTop + tabsTranslationY);
+    }
+
+    public float getLastYOffset() {
+        return lastYOffset;
+    }
+
+    public float getLastPercent() {
+        return lastPercent;
+    }
+
+    private void resetToolbarOutput() {
+        output.moveToolbarLayout = false;
+        output.cancelToolbarAnimation = false;
+        output.startToolbarEnterAnimation = false;
+        toolbarAnimatorStartedNow = false;
+    }
+
+    private void scrollDownToolbar(float yOffset, HeaderMetrics metrics) {
+        if (yOffset > metrics.toolbarLayoutHeight * 1.5f) {
+            enterToolbar();
+        } else {
+            if (hasToolbarAnimator) {
+                followScrollToolbarIsVisible = true;
+            } else {
+                followScrollToolbar(yOffset, metrics);
+            }
+        }
+    }
+
+    /**
+     * move the toolbarlayout (containing toolbar & tabs)
+     * following the current scroll
+     */
+    private void followScrollToolbar(float yOffset, HeaderMetrics metrics) {
+        if (metrics.toolbarBottom == 0)
+            return;
+
+        float translationY;
+        if (toolbarJoinsTabs(metrics)) {
+            if (firstScrollValue == Float.MIN_VALUE)
+                firstScrollValue = yOffset;
+
+            translationY = firstScrollValue - yOffset;
+
+            if (translationY > 0) {
+                translationY = 0;
+            }
+        } else {
+            translationY = 0;
+            justToolbarAnimated = false;
+        }
+        setToolbarLayoutTranslationY(translationY);
+
+        followScrollToolbarIsVisible = (metrics.toolbarLayoutTop + translationY >= 0);
+    }
+
+    private void enterToolbar() {
+        if (!followScrollToolbarIsVisible && hasToolbarAnimator) {
+            cancelToolbarAnimator();
+        }
+
+        if (!hasToolbarAnimator) {
+            hasToolbarAnimator = true;
+            toolbarAnimatorStartedNow = true;
+        }
+    }
+
+    private void cancelToolbarAnimator() {
+        if (hasToolbarAnimator) {
+            hasToolbarAnimator = false;
+            if (toolbarAnimatorStartedNow)
+                toolbarAnimatorStartedNow = false; //never started on the view
+            else
+                output.cancelToolbarAnimation = true;
+
+            //a cancelled animator also ends
+            onToolbarEnterAnimationEnd();
+        }
+    }
+
+    private void setToolbarLayoutTranslationY(float translationY) {
+        output.moveToolbarLayout = true;
+        output.toolbarLayoutTranslationY = translationY;
+    }
+
+    public static float minMax(float min, float value, float max) {
+        value = Math.min(value, max);
+        value = Math.max(min, value);
+        return value;
+    }
+
+    /**
+     * @return the color with its alpha set to percent (0 to 1)
+     * Only bit operations, so it can run on a JVM (android.graphics.Color can't)
+     */
+    public static int colorWithAlpha(int color, float percent) {
+        int alpha = Math.round(percent * 255);
+        return (alpha << 24) | (color & 0x00FFFFFF);
+    }
+
+    /**
+     * The target values of the header views, computed by HeaderScrollModel
+     */
+    public static class Output {
+        public float percent;
+
+        public float headerBackgroundTranslationY;
+
+        //the offset to dispatch to all registered scrollables
+        public float scrollablesYOffset;
+
+        //COLOR_NONE, COLOR_PERCENT or COLOR_ANIMATE_HIDE
+        public int colorMode;
+        public float colorPercent;
+        public boolean colorToolbarJoinsTabs;
+
+        //if true, move the tabs & the toolbarLayoutBackground to tabsTranslationY
+        public boolean moveTabs;
+        public float tabsTranslationY;
+
+        public float logoTranslationX;
+        public float logoTranslationY;
+        public float logoScale;
+        //used instead of the scale & translationX if hideLogoWithFade
+        public float logoAlpha;
+
+        //cancel the running toolbar enter animation, before moving the toolbarLayout
+        public boolean cancelToolbarAnimation;
+        //if true, move the toolbarLayout to toolbarLayoutTranslationY
+        public boolean moveToolbarLayout;
+        public float toolbarLayoutTranslationY;
+        //start the toolbar enter animation
+        public boolean startToolbarEnterAnimation;
+    }
+}
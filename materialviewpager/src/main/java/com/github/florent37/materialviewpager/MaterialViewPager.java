@@ -13,12 +13,15 @@ import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.RelativeLayout;
 
 import com.astuetz.PagerSlidingTabStrip;
+import com.github.florent37.materialviewpager.header.HeaderBitmapPool;
 import com.github.florent37.materialviewpager.header.HeaderDesign;
+import com.github.florent37.materialviewpager.header.HeaderImageLoader;
 import com.github.florent37.materialviewpager.header.MaterialViewPagerImageHelper;
 import com.nineoldandroids.view.ViewHelper;
 
@@ -81,6 +84,18 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
 
     protected MaterialViewPager.Listener listener;
 
+    //the animator of this MaterialViewPager, MaterialViewPagerHelper only keeps a weak reference to it
+    protected MaterialViewPagerAnimator animator;
+
+    //layouts waiting for inflateDeferredLayouts (if attr viewpager_deferHeaderInflation = true), -1 if none
+    private int deferredHeaderLayoutId = -1;
+    private int deferredLogoLayoutId = -1;
+
+    //image set while the header layout was not inflated, applied by inflateDeferredLayouts
+    private String deferredImageUrl;
+    private Drawable deferredImageDrawable;
+    private int deferredImageFadeDuration;
+
     //region construct
 
     public MaterialViewPager(Context context) {
@@ -106,9 +121,23 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
     //endregion
 
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        //registered again if it was detached (ex: inside a fragment)
+        MaterialViewPagerHelper.register(getContext(), animator);
+    }
+
     @Override
     protected void onDetachedFromWindow() {
-        MaterialViewPagerHelper.unregister(getContext());
+        MaterialViewPagerHelper.unregister(getContext(), animator);
+        removeCallbacks(prefetchHeaderImages);
+        //the pending load keeps the header image until it completes
+        View headerImage = findViewById(R.id.materialviewpager_imageHeader);
+        if (headerImage instanceof ImageView)
+            MaterialViewPagerImageHelper.cancelPendingRequest((ImageView) headerImage);
+        if (animator != null && animator.getLayerManager() != null)
+            animator.getLayerManager().demoteAll();
         listener = null;
         super.onDetachedFromWindow();
     }
@@ -142,6 +171,8 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
         mViewPager.addOnPageChangeListener(this);
 
         //inflate subviews defined in attributes
+        //the header image & logo can wait after the first frame, headerBackground displays the header color until then
+        boolean deferInflation = settings.deferHeaderInflation && !isInEditMode();
 
         {
             int headerId = settings.headerLayoutId;
@@ -151,7 +182,10 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
                 else
                     headerId = R.layout.material_view_pager_imageview_header;
             }
-            headerBackgroundContainer.addView(LayoutInflater.from(getContext()).inflate(headerId, headerBackgroundContainer, false));
+            if (deferInflation)
+                deferredHeaderLayoutId = headerId;
+            else
+                inflateHeaderLayout(headerId);
         }
 
 
@@ -164,12 +198,10 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
         }
 
         if (settings.logoLayoutId != -1) {
-            logoContainer.addView(LayoutInflater.from(getContext()).inflate(settings.logoLayoutId, logoContainer, false));
-            if (settings.logoMarginTop != 0) {
-                RelativeLayout.LayoutParams layoutParams = (RelativeLayout.LayoutParams) logoContainer.getLayoutParams();
-                layoutParams.setMargins(0, settings.logoMarginTop, 0, 0);
-                logoContainer.setLayoutParams(layoutParams);
-            }
+            if (deferInflation)
+                deferredLogoLayoutId = settings.logoLayoutId;
+            else
+                inflateLogoLayout(settings.logoLayoutId);
         }
 
         headerBackground = findViewById(R.id.headerBackground);
@@ -177,6 +209,9 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
 
         initialiseHeights();
 
+        if (settings.reuseHeaderBitmaps && !isInEditMode())
+            setupBitmapPool();
+
         //construct the materialViewPagerHeader with subviews
         if (!isInEditMode()) {
             materialViewPagerHeader = MaterialViewPagerHeader
@@ -189,7 +224,11 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
 
             //and construct the MaterialViewPagerAnimator
             //attach it to the activity to enable MaterialViewPagerHeaderView.setMaterialHeight();
-            MaterialViewPagerHelper.register(getContext(), new MaterialViewPagerAnimator(this));
+            animator = new MaterialViewPagerAnimator(this);
+            MaterialViewPagerHelper.register(getContext(), animator);
+
+            if (deferInflation)
+                inflateAfterFirstFrame();
         } else {
 
             //if in edit mode, add fake cardsviews
@@ -204,6 +243,88 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
         }
     }
 
+    private void inflateHeaderLayout(int headerId) {
+        headerBackgroundContainer.addView(LayoutInflater.from(getContext()).inflate(headerId, headerBackgroundContainer, false));
+    }
+
+    private void inflateLogoLayout(int logoLayoutId) {
+        logoContainer.addView(LayoutInflater.from(getContext()).inflate(logoLayoutId, logoContainer, false));
+        if (settings.logoMarginTop != 0) {
+            RelativeLayout.LayoutParams layoutParams = (RelativeLayout.LayoutParams) logoContainer.getLayoutParams();
+            layoutParams.setMargins(0, settings.logoMarginTop, 0, 0);
+            logoContainer.setLayoutParams(layoutParams);
+        }
+    }
+
+    /**
+     * Inflate the deferred layouts once the first frame has been drawn
+     * the pre draw listener doesn't cancel the frame, the inflation is posted after it
+     */
+    private void inflateAfterFirstFrame() {
+        getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                getViewTreeObserver().removeOnPreDrawListener(this);
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        inflateDeferredLayouts();
+                    }
+                });
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Inflate the header image & logo layouts if they were deferred (attr viewpager_deferHeaderInflation = true)
+     * Called after the first frame, or before the first header scroll, does nothing once inflated
+     */
+    public void inflateDeferredLayouts() {
+        if (deferredHeaderLayoutId == -1 && deferredLogoLayoutId == -1)
+            return;
+
+        Utils.beginTraceSection("MaterialViewPager:inflateDeferredLayouts");
+        if (deferredHeaderLayoutId != -1) {
+            int headerId = deferredHeaderLayoutId;
+            deferredHeaderLayoutId = -1;
+            inflateHeaderLayout(headerId);
+        }
+        if (deferredLogoLayoutId != -1) {
+            int logoLayoutId = deferredLogoLayoutId;
+            deferredLogoLayoutId = -1;
+            inflateLogoLayout(logoLayoutId);
+        }
+        Utils.endTraceSection();
+
+        //the image requested before the inflation
+        if (deferredImageDrawable != null) {
+            Drawable drawable = deferredImageDrawable;
+            deferredImageDrawable = null;
+            setImageDrawable(drawable, deferredImageFadeDuration);
+        } else if (deferredImageUrl != null) {
+            String imageUrl = deferredImageUrl;
+            deferredImageUrl = null;
+            setImageUrl(imageUrl, deferredImageFadeDuration);
+        }
+    }
+
+    /**
+     * Decode the header images at the header size into reused bitmaps, if attr viewpager_reuseHeaderBitmaps = true
+     * Keeps the pool already set on MaterialViewPagerImageHelper
+     */
+    private void setupBitmapPool() {
+        HeaderBitmapPool bitmapPool = MaterialViewPagerImageHelper.getBitmapPool();
+        if (bitmapPool == null) {
+            bitmapPool = new HeaderBitmapPool();
+            bitmapPool.setPreferRgb565(settings.headerBitmapRgb565);
+            MaterialViewPagerImageHelper.setBitmapPool(bitmapPool);
+        }
+        //the header image is not measured before the first layout, decode at the header size until then
+        bitmapPool.setDefaultSize(getResources().getDisplayMetrics().widthPixels,
+                (int) Utils.dpToPx(settings.headerHeight + settings.headerAdditionalHeight, getContext()));
+    }
+
     private void initialiseHeights() {
         if (headerBackground != null) {
             headerBackground.setBackgroundColor(this.settings.color);
@@ -263,10 +384,17 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
 
     /**
      * change the header displayed image with a fade
-     * may remove Picasso
+     * loaded by the HeaderImageLoader, see MaterialViewPagerImageHelper.setImageLoader
      */
     public void setImageUrl(String imageUrl, int fadeDuration) {
         if (imageUrl != null) {
+            if (deferredHeaderLayoutId != -1) {
+                //loaded once the header layout is inflated
+                deferredImageUrl = imageUrl;
+                deferredImageDrawable = null;
+                deferredImageFadeDuration = fadeDuration;
+                return;
+            }
             final ImageView headerBackgroundImage = (ImageView) findViewById(R.id.materialviewpager_imageHeader);
             //if using MaterialViewPagerImageHeader
             if (headerBackgroundImage != null) {
@@ -279,7 +407,6 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
 
     /**
      * change the header displayed image with a fade and an OnLoadListener
-     * may remove Picasso
      */
     public void setImageUrl(String imageUrl, int fadeDuration, OnImageLoadListener imageLoadListener) {
         if (imageLoadListener != null)
@@ -290,10 +417,16 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
 
     /**
      * change the header displayed image with a fade
-     * may remove Picasso
      */
     public void setImageDrawable(Drawable drawable, int fadeDuration) {
         if (drawable != null) {
+            if (deferredHeaderLayoutId != -1) {
+                //displayed once the header layout is inflated
+                deferredImageDrawable = drawable;
+                deferredImageUrl = null;
+                deferredImageFadeDuration = fadeDuration;
+                return;
+            }
             final ImageView headerBackgroundImage = (ImageView) findViewById(R.id.materialviewpager_imageHeader);
             //if using MaterialViewPagerImageHeader
             if (headerBackgroundImage != null) {
@@ -320,8 +453,8 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
      * Change the header color
      */
     public void setColor(int color, int fadeDuration) {
-        if (MaterialViewPagerHelper.getAnimator(getContext()) != null)
-            MaterialViewPagerHelper.getAnimator(getContext()).setColor(color, fadeDuration * 2);
+        if (animator != null)
+            animator.setColor(color, fadeDuration * 2);
     }
 
     @Override
@@ -331,7 +464,8 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
         SavedState ss = new SavedState(superState);
         //end
         ss.settings = this.settings;
-        ss.yOffset = MaterialViewPagerHelper.getAnimator(getContext()).lastYOffset;
+        if (animator != null)
+            ss.yOffset = animator.getLastYOffset();
 
         return ss;
     }
@@ -345,11 +479,12 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
         if (headerBackground != null)
             headerBackground.setBackgroundColor(this.settings.color);
 
-        MaterialViewPagerAnimator animator = MaterialViewPagerHelper.getAnimator(this.getContext());
-
-        //-1*ss.yOffset restore to 0
-        animator.restoreScroll(-1 * ss.yOffset, ss.settings);
-        MaterialViewPagerHelper.register(getContext(), animator);
+        //use the animator of this MaterialViewPager, the registered one may belong to the previous activity
+        if (animator != null) {
+            //-1*ss.yOffset restore to 0
+            animator.restoreScroll(-1 * ss.yOffset, ss.settings);
+            MaterialViewPagerHelper.register(getContext(), animator);
+        }
     }
 
     public ViewGroup getHeaderBackgroundContainer() {
@@ -360,6 +495,16 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
 
     int lastPosition = -1;
 
+    //ViewPager.SCROLL_STATE_*, the header images are prefetched when idle
+    private int scrollState = ViewPager.SCROLL_STATE_IDLE;
+
+    private final Runnable prefetchHeaderImages = new Runnable() {
+        @Override
+        public void run() {
+            prefetchHeaderImages(lastPosition);
+        }
+    };
+
     @Override
     public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
         if (positionOffset >= 0.5) {
@@ -379,6 +524,9 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
 
     @Override
     public void onPageSelected(int position) {
+        if (animator != null)
+            animator.onViewPagerPageSelected(position);
+
         if (position == lastPosition || listener == null)
             return;
 
@@ -401,17 +549,86 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
         setColor(color, fadeDuration);
 
         lastPosition = position;
+
+        if (scrollState == ViewPager.SCROLL_STATE_IDLE)
+            schedulePrefetch();
     }
 
     @Override
     public void onPageScrollStateChanged(int state) {
-        if (settings.displayToolbarWhenSwipe) {
-            MaterialViewPagerHelper.getAnimator(getContext()).onViewPagerPageChanged();
+        scrollState = state;
+        if (state == ViewPager.SCROLL_STATE_IDLE)
+            schedulePrefetch();
+        else
+            removeCallbacks(prefetchHeaderImages);
+
+        if (state == ViewPager.SCROLL_STATE_IDLE && settings.lazyScrollSync) {
+            if (animator != null)
+                animator.applyPendingScrollOffsets();
+        }
+        if (settings.displayToolbarWhenSwipe && animator != null) {
+            animator.onViewPagerPageChanged();
         }
     }
 
     //endregion
 
+    //region prefetch
+
+    /**
+     * Prefetch the header images after the current frame, if attr viewpager_headerPrefetchWindow > 0
+     */
+    private void schedulePrefetch() {
+        if (settings.headerPrefetchWindow <= 0 || listener == null)
+            return;
+        removeCallbacks(prefetchHeaderImages);
+        post(prefetchHeaderImages);
+    }
+
+    /**
+     * Warm the HeaderImageLoader cache with the header images of the pages around position, nearest first
+     * (viewpager_headerPrefetchWindow pages on each side, at most viewpager_headerPrefetchBudget images)
+     * Decoded at the size of the header image, so the next load of these urls is a cache hit
+     */
+    protected void prefetchHeaderImages(int position) {
+        if (position < 0 || listener == null || scrollState != ViewPager.SCROLL_STATE_IDLE)
+            return;
+        if (mViewPager == null || mViewPager.getAdapter() == null)
+            return;
+
+        HeaderImageLoader imageLoader = MaterialViewPagerImageHelper.getImageLoader();
+        View headerImage = findViewById(R.id.materialviewpager_imageHeader);
+        //not laid out yet, prefetched on the next idle
+        if (imageLoader == null || headerImage == null || headerImage.getWidth() == 0 || headerImage.getHeight() == 0)
+            return;
+
+        Utils.beginTraceSection("MaterialViewPager:prefetchHeaderImages");
+        int count = mViewPager.getAdapter().getCount();
+        int budget = settings.headerPrefetchBudget;
+        for (int distance = 1; distance <= settings.headerPrefetchWindow && budget > 0; ++distance) {
+            if (prefetchHeaderImage(imageLoader, headerImage, position + distance, count))
+                --budget;
+            if (budget > 0 && prefetchHeaderImage(imageLoader, headerImage, position - distance, count))
+                --budget;
+        }
+        Utils.endTraceSection();
+    }
+
+    private boolean prefetchHeaderImage(HeaderImageLoader imageLoader, View headerImage, int page, int count) {
+        if (page < 0 || page >= count)
+            return false;
+
+        HeaderDesign headerDesign = listener.getHeaderDesign(page);
+        //drawables are already in memory
+        if (headerDesign == null || headerDesign.getDrawable() != null || headerDesign.getImageUrl() == null)
+            return false;
+
+        imageLoader.prefetch(getContext(), headerDesign.getImageUrl(), headerImage.getWidth(), headerImage.getHeight());
+        return true;
+    }
+
+    //endregion
+
     static class SavedState extends BaseSavedState {
         public MaterialViewPagerSettings settings;
         public float yOffset;
@@ -454,6 +671,9 @@ public class MaterialViewPager extends FrameLayout implements ViewPager.OnPageCh
         HeaderDesign getHeaderDesign(int page);
     }
 
+    /**
+     * With a HeaderBitmapPool, the bitmap is reused once the header image changes again, copy it to keep it
+     */
     public interface OnImageLoadListener {
         void OnImageLoad(ImageView imageView, Bitmap bitmap);
     }
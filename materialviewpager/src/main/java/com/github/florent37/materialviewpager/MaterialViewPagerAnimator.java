@@ -1,13 +1,19 @@
 package com.github.florent37.materialviewpager;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.graphics.Color;
 import android.os.Build;
-import android.os.Handler;
-import android.os.Looper;
+import android.support.v4.view.ViewPager;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
 
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollView;
 import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCallbacks;
@@ -18,21 +24,12 @@ import com.nineoldandroids.animation.AnimatorListenerAdapter;
 import com.nineoldandroids.animation.ArgbEvaluator;
 import com.nineoldandroids.animation.ObjectAnimator;
 import com.nineoldandroids.animation.ValueAnimator;
-import com.nineoldandroids.view.ViewHelper;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 
 import static com.github.florent37.materialviewpager.Utils.canScroll;
 import static com.github.florent37.materialviewpager.Utils.colorWithAlpha;
 import static com.github.florent37.materialviewpager.Utils.dpToPx;
 import static com.github.florent37.materialviewpager.Utils.getTheVisibileView;
-import static com.github.florent37.materialviewpager.Utils.minMax;
 import static com.github.florent37.materialviewpager.Utils.scrollTo;
-import static com.github.florent37.materialviewpager.Utils.setBackgroundColor;
-import static com.github.florent37.materialviewpager.Utils.setElevation;
-import static com.github.florent37.materialviewpager.Utils.setScale;
 
 /**
  * Created by florentchampigny on 24/04/15.
@@ -51,6 +48,10 @@ public class MaterialViewPagerAnimator {
 
     public static Boolean ENABLE_LOG = true;
 
+    //the scroll logs are built on each scroll event (string concatenation, boxing of ENABLE_LOG)
+    //compiled out, set to true to debug the scroll
+    private static final boolean LOG_SCROLL = false;
+
     private Context context;
 
     //contains MaterialViewPager subviews references
@@ -71,30 +72,68 @@ public class MaterialViewPagerAnimator {
     // equals scrollMax in DP (saved to avoir convert to dp anytime I use it)
     public final float scrollMaxDp;
 
-    protected float lastYOffset = -1; //the current yOffset
-    protected float lastPercent = 0; //the current Percent
-
     //contains the attributes given to MaterialViewPager from layout
     protected MaterialViewPagerSettings settings;
 
-    //list of all registered scrollers
-    protected List<View> scrollViewList = new ArrayList<>();
-
-    //save all yOffsets of scrollables
-    protected HashMap<Object, Integer> yOffsets = new HashMap<>();
-
-    //the last headerYOffset during scroll
-    private float headerYOffset = Float.MAX_VALUE;
+    //all registered scrollers, with their yOffsets
+    protected MaterialViewPagerScrollables scrollables = new MaterialViewPagerScrollables();
 
     //the tmp headerAnimator (not null if animating, else null)
     private Object headerAnimator;
 
-    boolean followScrollToolbarIsVisible = false;
-    float firstScrollValue = Float.MIN_VALUE;
-    boolean justToolbarAnimated = false;
+    //positions of the header views, updated on each layout
+    protected final HeaderMetrics headerMetrics = new HeaderMetrics();
+
+    //compute the header values from the scroll, applied on views by this animator
+    protected final HeaderScrollModel scrollModel;
+
+    //the last selected ViewPager page
+    private int lastSelectedPage = -1;
+
+    //true while dispatchScrollOffset scrolls the other scrollables
+    private boolean syncingScrollables = false;
+
+    private OnScrollSyncListener onScrollSyncListener;
+
+    //records the events received by onMaterialScrolled, null if not recording
+    private MaterialViewPagerScrollTrace scrollTrace;
 
-    //intial distance between pager & toolbat
-    float initialDistance = -1;
+    //receive the cost of the header, null if not measured
+    private MaterialViewPagerMetrics metrics;
+
+    //number of scrollables scrolled by the current dispatchScrollOffset
+    private int siblingScrollCount;
+
+    //measure the frames while the header is animating, null if not monitored
+    private MaterialViewPagerJankMonitor jankMonitor;
+
+    //promote header views to hardware layers during transitions, null if not managed
+    private MaterialViewPagerLayerManager layerManager;
+
+    //yOffset given to restoreScroll, applied on the first layout of the header
+    private float pendingRestoreYOffset;
+    private ViewTreeObserver.OnGlobalLayoutListener restoreScrollListener;
+
+    //newest scroll received but not yet applied (if attr viewpager_coalesceScrollEvents = true)
+    private Object pendingSource;
+    private float pendingYOffset;
+    private boolean frameScheduled = false;
+
+    //the Choreographer.FrameCallback applying the pending scroll, kept as Object to load on API < 16
+    private Object frameCallback;
+
+    //write properties on header views, only if they changed
+    protected final MaterialViewPagerPropertyWriter propertyWriter = new MaterialViewPagerPropertyWriter();
+    private final MaterialViewPagerPropertyWriter.Target headerBackgroundProperties;
+    private final MaterialViewPagerPropertyWriter.Target statusBackgroundProperties;
+    private final MaterialViewPagerPropertyWriter.Target toolbarProperties;
+    private final MaterialViewPagerPropertyWriter.Target toolbarLayoutProperties;
+    private final MaterialViewPagerPropertyWriter.Target toolbarLayoutBackgroundProperties;
+    private final MaterialViewPagerPropertyWriter.Target pagerSlidingTabStripProperties;
+    private final MaterialViewPagerPropertyWriter.Target logoProperties;
+
+    //paints the toolbar, toolbarLayoutBackground & tabs color (if attr viewpager_compositeHeaderColor = true), else null
+    private MaterialViewPagerHeaderColorDrawable headerColorDrawable;
 
     public MaterialViewPagerAnimator(MaterialViewPager materialViewPager) {
 
@@ -111,6 +150,87 @@ public class MaterialViewPagerAnimator {
 
         //heightMaxScrollToolbar = context.getResources().getDimension(R.dimen.material_viewpager_padding_top);
         elevation = dpToPx(4, context);
+
+        this.scrollModel = new HeaderScrollModel(scrollMax, scrollMaxDp, settings.parallaxHeaderFactor, settings.hideToolbarAndTitle, settings.toolbarTransparent);
+
+        headerBackgroundProperties = propertyWriter.target(mHeader.headerBackground);
+        statusBackgroundProperties = propertyWriter.target(mHeader.statusBackground);
+        toolbarProperties = propertyWriter.target(mHeader.toolbar);
+        toolbarLayoutProperties = propertyWriter.target(mHeader.toolbarLayout);
+        toolbarLayoutBackgroundProperties = propertyWriter.target(mHeader.toolbarLayoutBackground);
+        pagerSlidingTabStripProperties = propertyWriter.target(mHeader.mPagerSlidingTabStrip);
+        logoProperties = propertyWriter.target(mHeader.mLogo);
+
+        if (settings.compositeHeaderColor && mHeader.toolbarLayout != null)
+            setupHeaderColorDrawable();
+
+        if (settings.manageHeaderLayers && mHeader.toolbarLayout != null)
+            setLayerManager(new MaterialViewPagerLayerManager(mHeader.toolbarLayout));
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB)
+            updateHeaderMetricsOnLayout();
+    }
+
+    /**
+     * The toolbar layout paints the color of its children, which stay transparent
+     */
+    @SuppressWarnings("deprecation")
+    private void setupHeaderColorDrawable() {
+        headerColorDrawable = new MaterialViewPagerHeaderColorDrawable();
+        headerColorDrawable.setColor(settings.color);
+        headerColorDrawable.setRegionView(MaterialViewPagerHeaderColorDrawable.REGION_TOOLBAR, mHeader.toolbar);
+        headerColorDrawable.setRegionView(MaterialViewPagerHeaderColorDrawable.REGION_TOOLBAR_LAYOUT_BACKGROUND, mHeader.toolbarLayoutBackground);
+        headerColorDrawable.setRegionView(MaterialViewPagerHeaderColorDrawable.REGION_TABS, mHeader.mPagerSlidingTabStrip);
+
+        //setBackground is only available from JELLY_BEAN
+        mHeader.toolbarLayout.setBackgroundDrawable(headerColorDrawable);
+        Utils.setBackgroundColor(Color.TRANSPARENT, mHeader.toolbar);
+        Utils.setBackgroundColor(Color.TRANSPARENT, mHeader.toolbarLayoutBackground);
+        Utils.setBackgroundColor(Color.TRANSPARENT, mHeader.mPagerSlidingTabStrip);
+    }
+
+    /**
+     * @return the drawable painting the header color (if attr viewpager_compositeHeaderColor = true), else null
+     */
+    public MaterialViewPagerHeaderColorDrawable getHeaderColorDrawable() {
+        return headerColorDrawable;
+    }
+
+    private void setToolbarColorRegions(int color, float alpha) {
+        headerColorDrawable.setColor(color);
+        headerColorDrawable.setRegionAlpha(MaterialViewPagerHeaderColorDrawable.REGION_TOOLBAR, alpha);
+        headerColorDrawable.setRegionAlpha(MaterialViewPagerHeaderColorDrawable.REGION_TOOLBAR_LAYOUT_BACKGROUND, alpha);
+        headerColorDrawable.setRegionAlpha(MaterialViewPagerHeaderColorDrawable.REGION_TABS, alpha);
+    }
+
+    /**
+     * Update the headerMetrics after each layout of the header
+     * Before HONEYCOMB, they are computed on the first scroll
+     */
+    private void updateHeaderMetrics() {
+        headerMetrics.set(
+                mHeader.toolbar.getBottom(),
+                mHeader.toolbarLayout.getTop(),
+                mHeader.toolbarLayout.getHeight(),
+                mHeader.mPagerSlidingTabStrip != null ? mHeader.mPagerSlidingTabStrip.getTop() : 0,
+                mHeader.headerBackground != null ? mHeader.headerBackground.getTop() : 0
+        );
+        if (headerColorDrawable != null)
+            headerColorDrawable.updateRegions();
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private void updateHeaderMetricsOnLayout() {
+        View.OnLayoutChangeListener onLayoutChangeListener = new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                updateHeaderMetrics();
+            }
+        };
+        if (mHeader.toolbarLayout != null)
+            mHeader.toolbarLayout.addOnLayoutChangeListener(onLayoutChangeListener);
+        if (mHeader.headerBackground != null)
+            mHeader.headerBackground.addOnLayoutChangeListener(onLayoutChangeListener);
     }
 
     /**
@@ -120,200 +240,424 @@ public class MaterialViewPagerAnimator {
      * @param yOffset
      */
     protected void dispatchScrollOffset(Object source, float yOffset) {
-        if (scrollViewList != null) {
-            for (Object scroll : scrollViewList) {
-
-                //do not re-scroll the source
-                if (scroll != null && scroll != source) {
-                    setScrollOffset(scroll, yOffset);
+        Utils.beginTraceSection("MaterialViewPager:dispatchScrollOffset");
+        int size = scrollables.size();
+        for (int slot = 0; slot < size; ++slot) {
+            View scrollable = scrollables.get(slot);
+            //do not re-scroll the source, skip the emptied slots
+            if (scrollable != null && scrollable != source) {
+                if (settings.lazyScrollSync && !isNearCurrentPage(slot)) {
+                    //not visible, the offset will be applied when the page comes next to the current one
+                    if (yOffset >= 0)
+                        scrollables.setPendingYOffset(slot, (int) yOffset);
+                } else {
+                    setScrollOffset(slot, yOffset);
                 }
             }
         }
+        Utils.endTraceSection();
+    }
+
+    /**
+     * Apply the pending yOffsets of the scrollables next to the current page
+     * (if attr viewpager_lazyScrollSync = true)
+     */
+    protected void applyPendingScrollOffsets() {
+        int size = scrollables.size();
+        for (int slot = 0; slot < size; ++slot) {
+            applyPendingScrollOffset(slot);
+        }
+    }
+
+    private void applyPendingScrollOffset(int slot) {
+        int pendingYOffset = scrollables.getPendingYOffset(slot);
+        if (pendingYOffset != MaterialViewPagerScrollables.NO_OFFSET && isNearCurrentPage(slot)) {
+            setScrollOffset(slot, pendingYOffset);
+        }
+    }
+
+    /**
+     * @return true if the scrollable is inside the current ViewPager page, or an adjacent one
+     */
+    private boolean isNearCurrentPage(int slot) {
+        ViewPager viewPager = materialViewPager.getViewPager();
+        if (viewPager == null)
+            return true;
+
+        View page = scrollables.getPage(slot);
+        if (page == null) {
+            page = findPage(viewPager, scrollables.get(slot));
+            if (page == null) //not yet added to the ViewPager, keep it synced
+                return true;
+            scrollables.setPage(slot, page);
+        }
+
+        //page removed from the ViewPager
+        if (page.getParent() != viewPager)
+            return false;
+
+        int pageWidth = viewPager.getWidth() + viewPager.getPageMargin();
+        return Math.abs(page.getLeft() - viewPager.getScrollX()) <= pageWidth;
+    }
+
+    /**
+     * @return the direct child of the ViewPager containing this view, null if not inside the ViewPager
+     */
+    private static View findPage(ViewPager viewPager, View view) {
+        View child = view;
+        ViewParent parent = view.getParent();
+        while (parent instanceof View) {
+            if (parent == viewPager)
+                return child;
+            child = (View) parent;
+            parent = parent.getParent();
+        }
+        return null;
     }
 
     /**
      * When notified for scroll, dispatch it to all registered scrollables
      *
-     * @param scroll
+     * @param slot    the slot of the scrollable
      * @param yOffset
      */
-    private void setScrollOffset(Object scroll, float yOffset) {
-        //do not re-scroll the source
+    private void setScrollOffset(int slot, float yOffset) {
+        View scroll = scrollables.get(slot);
         if (scroll != null && yOffset >= 0) {
+            int offset = (int) yOffset;
 
-            scrollTo(scroll, yOffset);
+            int reportedYOffset = scrollables.getReportedYOffset(slot);
 
-            //save the current yOffset of the scrollable on the yOffsets hashmap
-            yOffsets.put(scroll, (int) yOffset);
+            //already at this offset, nothing to scroll
+            if (!scrollables.needsSync(slot, offset))
+                return;
+
+            //the scrollables listeners will be notified of this scroll, they must not dispatch it again
+            syncingScrollables = true;
+            int syncType;
+            if (scroll instanceof RecyclerView) {
+                syncType = scrollRecyclerView((RecyclerView) scroll, offset, reportedYOffset);
+            } else {
+                scrollTo(scroll, yOffset);
+                syncType = OnScrollSyncListener.SYNC_SCROLL_TO;
+            }
+            syncingScrollables = false;
+            ++siblingScrollCount;
+
+            if (onScrollSyncListener != null)
+                onScrollSyncListener.onScrollSynced(scroll, offset, syncType);
+
+            //save the current yOffset of the scrollable
+            scrollables.setSyncedYOffset(slot, offset);
         }
     }
 
     /**
-     * Called when a scroller(RecyclerView/ListView,ScrollView,WebView) scrolled by the user
+     * Move the RecyclerView by the difference with its current yOffset, without layout pass
+     * If the difference is too big (more than a screen) or the RecyclerView is not laid out,
+     * use scrollToPositionWithOffset (request a layout and rebind)
      *
-     * @param source  the scroller
-     * @param yOffset the scroller current yOffset
+     * @return the OnScrollSyncListener.SYNC_* used
      */
-    public boolean onMaterialScrolled(Object source, float yOffset) {
+    private int scrollRecyclerView(RecyclerView recyclerView, int yOffset, int currentYOffset) {
+        int delta = yOffset - currentYOffset;
+
+        boolean laidOut = recyclerView.getChildCount() > 0 && !recyclerView.isLayoutRequested();
+        boolean smallJump = Math.abs(delta) <= recyclerView.getHeight();
+
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        boolean canScrollToPosition = layoutManager instanceof LinearLayoutManager || layoutManager instanceof StaggeredGridLayoutManager;
 
-        if(initialDistance == -1 || initialDistance == 0) {
-            initialDistance = mHeader.mPagerSlidingTabStrip.getTop() - mHeader.toolbar.getBottom();
+        //without LinearLayoutManager/StaggeredGridLayoutManager, scrollBy is the only way to sync
+        if (laidOut && (smallJump || !canScrollToPosition)) {
+            if (delta != 0)
+                recyclerView.scrollBy(0, delta);
+            return OnScrollSyncListener.SYNC_DELTA;
+        } else {
+            scrollTo(recyclerView, yOffset);
+            return OnScrollSyncListener.SYNC_LAYOUT;
         }
+    }
 
-        //only if yOffset changed
-        if (yOffset == lastYOffset)
-            return false;
+    /**
+     * Stop listening to the scrollable while it is detached (ex: page destroyed by a FragmentStatePagerAdapter)
+     * and register it again if the same view is attached again inside this MaterialViewPager
+     * The attach listener is kept in the scrollable until unregisterScrollable
+     *
+     * @param userListener the listener given to register*, given again when registered back
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB_MR1)
+    private void listenAttachState(View scrollable, Object userListener) {
+        Object attachState = scrollable.getTag(R.id.materialviewpager_attachState);
+        if (attachState instanceof AttachStateListener && ((AttachStateListener) attachState).getAnimator() == this) {
+            ((AttachStateListener) attachState).userListener = userListener;
+            return;
+        }
 
-        float scrollTop = -yOffset;
+        //registered before by another MaterialViewPager
+        removeAttachStateListener(scrollable);
 
-        {
-            //parallax scroll of the Background ImageView (the KenBurnsView)
-            if (mHeader.headerBackground != null) {
+        AttachStateListener listener = new AttachStateListener(userListener);
+        scrollable.addOnAttachStateChangeListener(listener);
+        scrollable.setTag(R.id.materialviewpager_attachState, listener);
+    }
 
-                if (this.settings.parallaxHeaderFactor != 0)
-                    ViewHelper.setTranslationY(mHeader.headerBackground, scrollTop / this.settings.parallaxHeaderFactor);
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB_MR1)
+    private static void removeAttachStateListener(View scrollable) {
+        Object attachState = scrollable.getTag(R.id.materialviewpager_attachState);
+        if (attachState instanceof View.OnAttachStateChangeListener)
+            scrollable.removeOnAttachStateChangeListener((View.OnAttachStateChangeListener) attachState);
+        scrollable.setTag(R.id.materialviewpager_attachState, null);
+    }
 
-                if (ViewHelper.getY(mHeader.headerBackground) >= 0)
-                    ViewHelper.setY(mHeader.headerBackground, 0);
-            }
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB_MR1)
+    private class AttachStateListener implements View.OnAttachStateChangeListener {
+        Object userListener;
 
+        AttachStateListener(Object userListener) {
+            this.userListener = userListener;
+        }
 
+        MaterialViewPagerAnimator getAnimator() {
+            return MaterialViewPagerAnimator.this;
         }
 
-        if (ENABLE_LOG)
-            Log.d("yOffset", "" + yOffset);
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            int slot = scrollables.indexOf(v);
+            if (slot != -1) {
+                //registered before being attached, apply the yOffset dispatched meanwhile
+                if (settings.lazyScrollSync)
+                    applyPendingScrollOffset(slot);
+            } else if (isInside(v)) {
+                //attached again, ex: page view kept by the PagerAdapter
+                registerScrollable(v, userListener);
+            } else {
+                //moved outside this MaterialViewPager
+                removeAttachStateListener(v);
+            }
+        }
 
-        //dispatch the new offset to all registered scrollables
-        dispatchScrollOffset(source, minMax(0, yOffset, scrollMaxDp));
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            stopListening(v);
+        }
+    }
 
-        float percent = yOffset / scrollMax;
+    /**
+     * @return true if the view is inside the MaterialViewPager of this animator
+     */
+    private boolean isInside(View view) {
+        ViewParent parent = view.getParent();
+        while (parent instanceof View) {
+            if (parent == materialViewPager)
+                return true;
+            parent = parent.getParent();
+        }
+        return false;
+    }
 
-        if (ENABLE_LOG)
-            Log.d("percent1", "" + percent);
+    private void registerScrollable(View scrollable, Object userListener) {
+        if (scrollable instanceof RecyclerView)
+            registerRecyclerView((RecyclerView) scrollable, (RecyclerView.OnScrollListener) userListener);
+        else if (scrollable instanceof ObservableScrollView)
+            registerScrollView((ObservableScrollView) scrollable, (ObservableScrollViewCallbacks) userListener);
+        else if (scrollable instanceof ObservableWebView)
+            registerWebView((ObservableWebView) scrollable, (ObservableScrollViewCallbacks) userListener);
+    }
 
-        if(percent != 0) {
-            //distance between pager & toolbar
-            float newDistance = ViewHelper.getY(mHeader.mPagerSlidingTabStrip) - mHeader.toolbar.getBottom();
+    /**
+     * @param listener     the listener to remove when unregistered, see stopListening
+     * @param userListener the listener given to register*
+     */
+    private void onScrollableRegistered(View scrollable, int slot, Object listener, Object userListener) {
+        scrollables.setListener(slot, listener);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1)
+            listenAttachState(scrollable, userListener);
+    }
 
-            percent = 1 - newDistance / initialDistance;
+    /**
+     * Called when a scroller(RecyclerView/ListView,ScrollView,WebView) scrolled by the user
+     *
+     * @param source  the scroller
+     * @param yOffset the scroller current yOffset
+     */
+    public boolean onMaterialScrolled(Object source, float yOffset) {
 
-            if (ENABLE_LOG)
-                Log.d("percent2", "" + percent);
+        if (scrollTrace != null) {
+            int slot = scrollables.indexOf(source);
+            scrollTrace.record(slot == -1 ? MaterialViewPagerScrollTrace.NO_SLOT : slot, yOffset, System.nanoTime());
         }
 
-        if(Float.isNaN(percent)) //fix for orientation change
-            return false;
-
-        //fix quick scroll
-        if(percent == 0 && headerAnimator != null) {
-            cancelHeaderAnimator();
-            ViewHelper.setTranslationY(mHeader.toolbarLayout,0);
+        Utils.beginTraceSection("MaterialViewPager:onMaterialScrolled");
+        if (metrics == null) {
+            boolean scrolled = scrollHeader(source, yOffset);
+            Utils.endTraceSection();
+            return scrolled;
         }
 
-        percent = minMax(0, percent, 1);
-        {
+        long start = System.nanoTime();
+        long writesBefore = propertyWriter.getWriteCount();
+        siblingScrollCount = 0;
 
-            if (!settings.toolbarTransparent) {
-                // change color of toolbar & viewpager indicator &  statusBaground
-                setColorPercent(percent);
-            } else {
-                if (justToolbarAnimated) {
-                    if (toolbarJoinsTabs())
-                        setColorPercent(1);
-                    else if (lastPercent != percent) {
-                        animateColorPercent(0, 200);
-                    }
-                }
-            }
+        boolean scrolled = scrollHeader(source, yOffset);
 
-            lastPercent = percent; //save the percent
+        metrics.onHeaderScrolled(System.nanoTime() - start, siblingScrollCount, propertyWriter.getWriteCount() - writesBefore);
+        Utils.endTraceSection();
+        return scrolled;
+    }
 
-            if (mHeader.mPagerSlidingTabStrip != null) { //move the viewpager indicator
-                //float newY = ViewHelper.getY(mHeader.mPagerSlidingTabStrip) + scrollTop;
+    private boolean scrollHeader(Object source, float yOffset) {
+        //the header layouts have to be there before moving them
+        materialViewPager.inflateDeferredLayouts();
 
-                if (ENABLE_LOG)
-                    Log.d(TAG, "" + scrollTop);
+        if (!headerMetrics.isValid()) {
+            updateHeaderMetrics();
+        }
+        //the logo positions are computed by MaterialViewPagerHeader before the first draw
+        headerMetrics.setLogo(mHeader.originalTitleX, mHeader.originalTitleY, mHeader.finalTitleX, mHeader.finalTitleY, mHeader.finalScale);
 
+        //only if yOffset changed
+        if (yOffset == scrollModel.getLastYOffset())
+            return false;
 
-                //mHeader.mPagerSlidingTabStrip.setTranslationY(mHeader.getToolbar().getBottom()-mHeader.mPagerSlidingTabStrip.getY());
-                if (scrollTop <= 0) {
-                    ViewHelper.setTranslationY(mHeader.mPagerSlidingTabStrip, scrollTop);
-                    ViewHelper.setTranslationY(mHeader.toolbarLayoutBackground, scrollTop);
+        if (LOG_SCROLL && ENABLE_LOG)
+            Log.d("yOffset", "" + yOffset);
 
-                    //when
-                    if (ViewHelper.getY(mHeader.mPagerSlidingTabStrip) < mHeader.getToolbar().getBottom()) {
-                        float ty = mHeader.getToolbar().getBottom() - mHeader.mPagerSlidingTabStrip.getTop();
-                        ViewHelper.setTranslationY(mHeader.mPagerSlidingTabStrip, ty);
-                        ViewHelper.setTranslationY(mHeader.toolbarLayoutBackground, ty);
-                    }
-                }
+        float previousPercent = scrollModel.getLastPercent();
+        boolean computed = scrollModel.compute(yOffset, headerMetrics);
+        HeaderScrollModel.Output output = scrollModel.output;
 
-            }
+        //only while the tabs & logo move, not when scrolling the content of a collapsed or expanded header
+        if (computed && ((output.percent > 0 && output.percent < 1) || output.percent != previousPercent))
+            onHeaderState(MaterialViewPagerJankMonitor.STATE_COLLAPSING);
 
+        //parallax scroll of the Background ImageView (the KenBurnsView)
+        headerBackgroundProperties.setTranslationY(output.headerBackgroundTranslationY);
 
-            if (mHeader.mLogo != null) { //move the header logo to toolbar
+        //dispatch the new offset to all registered scrollables
+        dispatchScrollOffset(source, output.scrollablesYOffset);
 
-                if (this.settings.hideLogoWithFade) {
-                    ViewHelper.setAlpha(mHeader.mLogo, 1 - percent);
-                    ViewHelper.setTranslationY(mHeader.mLogo, (mHeader.finalTitleY - mHeader.originalTitleY) * percent);
-                } else {
-                    ViewHelper.setTranslationY(mHeader.mLogo, (mHeader.finalTitleY - mHeader.originalTitleY) * percent);
-                    ViewHelper.setTranslationX(mHeader.mLogo, (mHeader.finalTitleX - mHeader.originalTitleX) * percent);
+        //header not laid out yet (ex: orientation change)
+        if (!computed)
+            return false;
 
-                    float scale = (1 - percent) * (1 - mHeader.finalScale) + mHeader.finalScale;
-                    setScale(scale, mHeader.mLogo);
-                }
-            }
+        if (LOG_SCROLL && ENABLE_LOG)
+            Log.d("percent", "" + output.percent);
 
-            if (this.settings.hideToolbarAndTitle && mHeader.toolbarLayout != null) {
-                boolean scrollUp = lastYOffset < yOffset;
+        applyHeaderOutput(output);
 
-                if (scrollUp) {
-                    scrollUp(yOffset);
-                } else {
-                    scrollDown(yOffset);
-                }
-            }
+        return true;
+    }
+
+    /**
+     * Push the values computed by the HeaderScrollModel onto the header views
+     */
+    private void applyHeaderOutput(HeaderScrollModel.Output output) {
+        // change color of toolbar & viewpager indicator &  statusBaground
+        if (output.colorMode == HeaderScrollModel.COLOR_PERCENT) {
+            setColorPercent(output.colorPercent, output.colorToolbarJoinsTabs);
+        } else if (output.colorMode == HeaderScrollModel.COLOR_ANIMATE_HIDE) {
+            animateColorPercent(output.colorPercent, 0, 200);
         }
 
-        if (headerAnimator != null && percent < 1) {
-            cancelHeaderAnimator();
+        //move the viewpager indicator
+        if (output.moveTabs) {
+            pagerSlidingTabStripProperties.setTranslationY(output.tabsTranslationY);
+            toolbarLayoutBackgroundProperties.setTranslationY(output.tabsTranslationY);
+            if (headerColorDrawable != null)
+                headerColorDrawable.updateRegions();
         }
 
-        lastYOffset = yOffset;
+        //move the header logo to toolbar
+        if (this.settings.hideLogoWithFade) {
+            logoProperties.setAlpha(output.logoAlpha);
+            logoProperties.setTranslationY(output.logoTranslationY);
+        } else {
+            logoProperties.setTranslationY(output.logoTranslationY);
+            logoProperties.setTranslationX(output.logoTranslationX);
+            logoProperties.setScale(output.logoScale);
+        }
 
-        return true;
+        applyToolbarOutput(output);
     }
 
-    private  void cancelHeaderAnimator(){
-        if(headerAnimator != null) {
-            if (headerAnimator instanceof ObjectAnimator)
-                ((ObjectAnimator) headerAnimator).cancel();
-            else if (headerAnimator instanceof android.animation.ObjectAnimator)
-                ((android.animation.ObjectAnimator) headerAnimator).cancel();
-            headerAnimator = null;
+    /**
+     * Push the toolbarLayout values computed by the HeaderScrollModel
+     */
+    private void applyToolbarOutput(HeaderScrollModel.Output output) {
+        if (output.cancelToolbarAnimation)
+            cancelHeaderAnimator();
+
+        if (output.moveToolbarLayout)
+            toolbarLayoutProperties.setTranslationY(output.toolbarLayoutTranslationY);
+
+        if (output.startToolbarEnterAnimation)
+            animateEnterToolbarLayout();
+    }
+
+    /**
+     * Called by the registered scrollables when they scrolled
+     * If viewpager_coalesceScrollEvents is enabled, only save the newest offset
+     * then update the header and the other scrollables once, on the next frame
+     *
+     * @param source  the scroller
+     * @param yOffset the scroller current yOffset
+     */
+    protected void onScrollableScrolled(Object source, int yOffset) {
+        //scrolled by dispatchScrollOffset, not by the user
+        if (syncingScrollables)
+            return;
+
+        if (metrics != null)
+            metrics.onScrollEventReceived();
+
+        if (settings.coalesceScrollEvents && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            pendingSource = source;
+            pendingYOffset = yOffset;
+            if (!frameScheduled) {
+                frameScheduled = true;
+                postFrameCallback();
+            } else if (metrics != null) {
+                //the previous event will not be applied
+                metrics.onScrollEventCoalesced();
+            }
+        } else if (isNewYOffset(yOffset)) { //only if yOffset changed
+            onMaterialScrolled(source, yOffset);
         }
     }
 
-    private void scrollUp(float yOffset) {
-        if (ENABLE_LOG)
-            Log.d(TAG, "scrollUp");
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (frameCallback == null) {
+            frameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    frameScheduled = false;
 
-        followScrollToolbarLayout(yOffset);
+                    Object source = pendingSource;
+                    pendingSource = null;
+                    onMaterialScrolled(source, pendingYOffset);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) frameCallback);
     }
 
-    private void scrollDown(float yOffset) {
-        if (ENABLE_LOG)
-            Log.d(TAG, "scrollDown");
-        if (yOffset > mHeader.toolbarLayout.getHeight() * 1.5f) {
-            animateEnterToolbarLayout(yOffset);
-        } else {
-            if (headerAnimator != null) {
-                followScrollToolbarIsVisible = true;
-            } else {
-                headerYOffset = Float.MAX_VALUE;
-                followScrollToolbarLayout(yOffset);
+    private  void cancelHeaderAnimator(){
+        if(headerAnimator != null) {
+            //the HeaderScrollModel already knows the animator is cancelled, do not notify its end
+            if (headerAnimator instanceof ObjectAnimator) {
+                ((ObjectAnimator) headerAnimator).removeAllListeners();
+                ((ObjectAnimator) headerAnimator).cancel();
+            } else if (headerAnimator instanceof android.animation.ObjectAnimator) {
+                ((android.animation.ObjectAnimator) headerAnimator).removeAllListeners();
+                ((android.animation.ObjectAnimator) headerAnimator).cancel();
             }
+            headerAnimator = null;
+
+            //the animator moved the toolbarLayout
+            toolbarLayoutProperties.invalidateTranslationY();
         }
     }
 
@@ -325,32 +669,45 @@ public class MaterialViewPagerAnimator {
      * @param duration the transition color animation duration
      */
     public void setColor(int color, int duration) {
-        ValueAnimator colorAnim = ObjectAnimator.ofInt(mHeader.headerBackground, "backgroundColor", settings.color, color);
+        Utils.beginTraceSection("MaterialViewPager:setColor");
+        //no target, each frame is written through the property writer so its cached values stay right
+        ValueAnimator colorAnim = ValueAnimator.ofInt(settings.color, color);
         colorAnim.setEvaluator(new ArgbEvaluator());
         colorAnim.setDuration(duration);
         colorAnim.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
             @Override
             public void onAnimationUpdate(ValueAnimator animation) {
                 final int animatedValue = (Integer) animation.getAnimatedValue();
-                int colorAlpha = colorWithAlpha(animatedValue, lastPercent);
-                mHeader.headerBackground.setBackgroundColor(colorAlpha);
-                mHeader.statusBackground.setBackgroundColor(colorAlpha);
-                mHeader.toolbar.setBackgroundColor(colorAlpha);
-                mHeader.toolbarLayoutBackground.setBackgroundColor(colorAlpha);
-                mHeader.mPagerSlidingTabStrip.setBackgroundColor(colorAlpha);
+                onHeaderState(MaterialViewPagerJankMonitor.STATE_COLOR_TRANSITION);
+                int colorAlpha = colorWithAlpha(animatedValue, scrollModel.getLastPercent());
+                headerBackgroundProperties.setBackgroundColor(colorAlpha);
+                statusBackgroundProperties.setBackgroundColor(colorAlpha);
+                if (headerColorDrawable != null) {
+                    setToolbarColorRegions(animatedValue, scrollModel.getLastPercent());
+                } else {
+                    toolbarProperties.setBackgroundColor(colorAlpha);
+                    toolbarLayoutBackgroundProperties.setBackgroundColor(colorAlpha);
+                    pagerSlidingTabStripProperties.setBackgroundColor(colorAlpha);
+                }
 
                 //set the new color as MaterialViewPager's color
                 settings.color = animatedValue;
             }
         });
         colorAnim.start();
+        Utils.endTraceSection();
     }
 
     public void animateColorPercent(float percent, int duration) {
-        ValueAnimator valueAnimator = ValueAnimator.ofFloat(lastPercent, percent);
+        animateColorPercent(scrollModel.getLastPercent(), percent, duration);
+    }
+
+    private void animateColorPercent(float fromPercent, float percent, int duration) {
+        ValueAnimator valueAnimator = ValueAnimator.ofFloat(fromPercent, percent);
         valueAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
             @Override
             public void onAnimationUpdate(ValueAnimator animation) {
+                onHeaderState(MaterialViewPagerJankMonitor.STATE_COLOR_TRANSITION);
                 setColorPercent((float) animation.getAnimatedValue());
             }
         });
@@ -359,115 +716,91 @@ public class MaterialViewPagerAnimator {
     }
 
     public void setColorPercent(float percent) {
-        // change color of
-        // toolbar & viewpager indicator &  statusBaground
-
-        setBackgroundColor(
-                colorWithAlpha(this.settings.color, percent),
-                mHeader.statusBackground
-        );
-
-        if (percent >= 1) {
-            setBackgroundColor(
-                    colorWithAlpha(this.settings.color, percent),
-                    mHeader.toolbar,
-                    mHeader.toolbarLayoutBackground,
-                    mHeader.mPagerSlidingTabStrip
-            );
-        } else {
-            setBackgroundColor(
-                    colorWithAlpha(this.settings.color, 0),
-                    mHeader.toolbar,
-                    mHeader.toolbarLayoutBackground,
-                    mHeader.mPagerSlidingTabStrip
-            );
-        }
-
-        if (this.settings.enableToolbarElevation && toolbarJoinsTabs())
-            setElevation(
-                    (percent == 1) ? elevation : 0,
-                    mHeader.toolbar,
-                    mHeader.toolbarLayoutBackground,
-                    mHeader.mPagerSlidingTabStrip,
-                    mHeader.mLogo
-            );
+        setColorPercent(percent, scrollModel.toolbarJoinsTabs(headerMetrics));
     }
 
-    private boolean toolbarJoinsTabs() {
-        return (mHeader.toolbar.getBottom() == mHeader.mPagerSlidingTabStrip.getTop() + ViewHelper.getTranslationY(mHeader.mPagerSlidingTabStrip));
-    }
+    private void setColorPercent(float percent, boolean toolbarJoinsTabs) {
+        Utils.beginTraceSection("MaterialViewPager:setColorPercent");
 
-    /**
-     * move the toolbarlayout (containing toolbar & tabs)
-     * following the current scroll
-     */
-    private void followScrollToolbarLayout(float yOffset) {
-        if (mHeader.toolbar.getBottom() == 0)
-            return;
-
-        if (toolbarJoinsTabs()) {
-            if (firstScrollValue == Float.MIN_VALUE)
-                firstScrollValue = yOffset;
+        // change color of
+        // toolbar & viewpager indicator &  statusBaground
 
-            float translationY = firstScrollValue - yOffset;
-            
-            if(translationY > 0) {
-                translationY = 0;
-            }
+        //views are updated one by one, varargs would allocate an array on each scroll
+        //values are only written if they changed since the last scroll
 
-            if (ENABLE_LOG)
-                Log.d(TAG, "translationY " + translationY);
+        statusBackgroundProperties.setBackgroundColor(colorWithAlpha(this.settings.color, percent));
 
-            ViewHelper.setTranslationY(mHeader.toolbarLayout, translationY);
+        if (headerColorDrawable != null) {
+            //a single invalidation of the toolbar layout background
+            setToolbarColorRegions(this.settings.color, percent >= 1 ? percent : 0);
         } else {
-            ViewHelper.setTranslationY(mHeader.toolbarLayout, 0);
-            justToolbarAnimated = false;
+            int toolbarColor = colorWithAlpha(this.settings.color, percent >= 1 ? percent : 0);
+            toolbarProperties.setBackgroundColor(toolbarColor);
+            toolbarLayoutBackgroundProperties.setBackgroundColor(toolbarColor);
+            pagerSlidingTabStripProperties.setBackgroundColor(toolbarColor);
         }
 
-        followScrollToolbarIsVisible = (ViewHelper.getY(mHeader.toolbarLayout) >= 0);
+        if (this.settings.enableToolbarElevation && toolbarJoinsTabs && headerColorDrawable != null) {
+            //the toolbar layout casts the shadow of the painted regions
+            float toolbarElevation = (percent == 1) ? elevation : 0;
+            toolbarLayoutProperties.setElevation(toolbarElevation);
+            logoProperties.setElevation(toolbarElevation);
+        } else if (this.settings.enableToolbarElevation && toolbarJoinsTabs) {
+            float toolbarElevation = (percent == 1) ? elevation : 0;
+            toolbarProperties.setElevation(toolbarElevation);
+            toolbarLayoutBackgroundProperties.setElevation(toolbarElevation);
+            pagerSlidingTabStripProperties.setElevation(toolbarElevation);
+            logoProperties.setElevation(toolbarElevation);
+        }
+
+        Utils.endTraceSection();
     }
 
     /**
      * Animate enter toolbarlayout
-     *
-     * @param yOffset
      */
-    private void animateEnterToolbarLayout(float yOffset) {
-        if (!followScrollToolbarIsVisible && headerAnimator != null) {
-            if (headerAnimator instanceof ObjectAnimator)
-                ((ObjectAnimator) headerAnimator).cancel();
-            else if (headerAnimator instanceof android.animation.ObjectAnimator)
-                ((android.animation.ObjectAnimator) headerAnimator).cancel();
-            headerAnimator = null;
-        }
-
-        if (headerAnimator == null) {
-            if (android.os.Build.VERSION.SDK_INT > Build.VERSION_CODES.GINGERBREAD_MR1) {
-                headerAnimator = android.animation.ObjectAnimator.ofFloat(mHeader.toolbarLayout, "translationY", 0).setDuration(ENTER_TOOLBAR_ANIMATION_DURATION);
-                ((android.animation.ObjectAnimator) headerAnimator).addListener(new android.animation.AnimatorListenerAdapter() {
+    private void animateEnterToolbarLayout() {
+        //the animator will move the toolbarLayout
+        toolbarLayoutProperties.invalidateTranslationY();
+
+        if (android.os.Build.VERSION.SDK_INT > Build.VERSION_CODES.GINGERBREAD_MR1) {
+            headerAnimator = android.animation.ObjectAnimator.ofFloat(mHeader.toolbarLayout, "translationY", 0).setDuration(ENTER_TOOLBAR_ANIMATION_DURATION);
+            if (jankMonitor != null || layerManager != null) {
+                ((android.animation.ObjectAnimator) headerAnimator).addUpdateListener(new android.animation.ValueAnimator.AnimatorUpdateListener() {
                     @Override
-                    public void onAnimationEnd(android.animation.Animator animation) {
-                        super.onAnimationEnd(animation);
-                        followScrollToolbarIsVisible = true;
-                        firstScrollValue = Float.MIN_VALUE;
-                        justToolbarAnimated = true;
+                    public void onAnimationUpdate(android.animation.ValueAnimator animation) {
+                        onHeaderState(MaterialViewPagerJankMonitor.STATE_TOOLBAR_ANIMATION);
                     }
                 });
-                ((android.animation.ObjectAnimator) headerAnimator).start();
-            } else {
-                headerAnimator = ObjectAnimator.ofFloat(mHeader.toolbarLayout, "translationY", 0).setDuration(ENTER_TOOLBAR_ANIMATION_DURATION);
-                ((ObjectAnimator) headerAnimator).addListener(new AnimatorListenerAdapter() {
+            }
+            ((android.animation.ObjectAnimator) headerAnimator).addListener(new android.animation.AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationEnd(android.animation.Animator animation) {
+                    super.onAnimationEnd(animation);
+                    scrollModel.onToolbarEnterAnimationEnd();
+                    toolbarLayoutProperties.invalidateTranslationY();
+                }
+            });
+            ((android.animation.ObjectAnimator) headerAnimator).start();
+        } else {
+            headerAnimator = ObjectAnimator.ofFloat(mHeader.toolbarLayout, "translationY", 0).setDuration(ENTER_TOOLBAR_ANIMATION_DURATION);
+            if (jankMonitor != null || layerManager != null) {
+                ((ObjectAnimator) headerAnimator).addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
                     @Override
-                    public void onAnimationEnd(Animator animation) {
-                        super.onAnimationEnd(animation);
-                        followScrollToolbarIsVisible = true;
-                        firstScrollValue = Float.MIN_VALUE;
-                        justToolbarAnimated = true;
+                    public void onAnimationUpdate(ValueAnimator animation) {
+                        onHeaderState(MaterialViewPagerJankMonitor.STATE_TOOLBAR_ANIMATION);
                     }
                 });
-                ((ObjectAnimator) headerAnimator).start();
             }
-            headerYOffset = yOffset;
+            ((ObjectAnimator) headerAnimator).addListener(new AnimatorListenerAdapter() {
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    super.onAnimationEnd(animation);
+                    scrollModel.onToolbarEnterAnimationEnd();
+                    toolbarLayoutProperties.invalidateTranslationY();
+                }
+            });
+            ((ObjectAnimator) headerAnimator).start();
         }
     }
 
@@ -476,12 +809,20 @@ public class MaterialViewPagerAnimator {
     }
 
     protected boolean isNewYOffset(int yOffset) {
+        float lastYOffset = scrollModel.getLastYOffset();
         if (lastYOffset == -1)
             return true;
         else
             return yOffset != lastYOffset;
     }
 
+    /**
+     * @return the current yOffset
+     */
+    public float getLastYOffset() {
+        return scrollModel.getLastYOffset();
+    }
+
     //region register scrollables
 
     /**
@@ -494,12 +835,15 @@ public class MaterialViewPagerAnimator {
      */
     public void registerRecyclerView(final RecyclerView recyclerView, final RecyclerView.OnScrollListener onScrollListener) {
         if (recyclerView != null) {
-            scrollViewList.add(recyclerView); //add to the scrollable list
-            yOffsets.put(recyclerView, recyclerView.getScrollY()); //save the initial recyclerview's yOffset (0) into hashmap
-            //only necessary for recyclerview
+            //registered again, remove the previous listener
+            stopListening(recyclerView);
+
+            //add to the scrollables, with its initial yOffset (0)
+            //the yOffset is only necessary for recyclerview
+            final int slot = scrollables.register(recyclerView, recyclerView.getScrollY());
 
             //listen to scroll
-            recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            RecyclerView.OnScrollListener listener = new RecyclerView.OnScrollListener() {
 
                 boolean firstZeroPassed;
 
@@ -517,10 +861,7 @@ public class MaterialViewPagerAnimator {
                     if (onScrollListener != null)
                         onScrollListener.onScrolled(recyclerView, dx, dy);
 
-                    int yOffset = yOffsets.get(recyclerView);
-
-                    yOffset += dy;
-                    yOffsets.put(recyclerView, yOffset); //save the new offset
+                    int yOffset = scrollables.addReportedYOffset(slot, dy); //save the new offset
 
                     //first time you get 0, don't share it to others scrolls
                     if (yOffset == 0 && !firstZeroPassed) {
@@ -528,16 +869,17 @@ public class MaterialViewPagerAnimator {
                         return;
                     }
 
-                    //only if yOffset changed
-                    if (isNewYOffset(yOffset))
-                        onMaterialScrolled(recyclerView, yOffset);
+                    onScrollableScrolled(recyclerView, yOffset);
                 }
-            });
+            };
+            recyclerView.addOnScrollListener(listener);
+            onScrollableRegistered(recyclerView, slot, listener, onScrollListener);
 
             recyclerView.post(new Runnable() {
                 @Override
                 public void run() {
-                    setScrollOffset(recyclerView, lastYOffset);
+                    if (scrollables.get(slot) == recyclerView)
+                        setScrollOffset(slot, scrollModel.getLastYOffset());
                 }
             });
         }
@@ -553,7 +895,12 @@ public class MaterialViewPagerAnimator {
      */
     public void registerScrollView(final ObservableScrollView scrollView, final ObservableScrollViewCallbacks observableScrollViewCallbacks) {
         if (scrollView != null) {
-            scrollViewList.add(scrollView);  //add to the scrollable list
+            //registered again, remove the previous listener
+            stopListening(scrollView);
+
+            final int slot = scrollables.register(scrollView, scrollView.getCurrentScrollY());  //add to the scrollables
+            //given back to the scrollView when unregistered
+            onScrollableRegistered(scrollView, slot, observableScrollViewCallbacks, observableScrollViewCallbacks);
             if (scrollView.getParent() != null && scrollView.getParent().getParent() != null && scrollView.getParent().getParent() instanceof ViewGroup)
                 scrollView.setTouchInterceptionViewGroup((ViewGroup) scrollView.getParent().getParent());
             scrollView.setScrollViewCallbacks(new ObservableScrollViewCallbacks() {
@@ -565,15 +912,15 @@ public class MaterialViewPagerAnimator {
                     if (observableScrollViewCallbacks != null)
                         observableScrollViewCallbacks.onScrollChanged(yOffset, b, b2);
 
+                    scrollables.setReportedYOffset(slot, yOffset);
+
                     //first time you get 0, don't share it to others scrolls
                     if (yOffset == 0 && !firstZeroPassed) {
                         firstZeroPassed = true;
                         return;
                     }
 
-                    //only if yOffset changed
-                    if (isNewYOffset(yOffset))
-                        onMaterialScrolled(scrollView, yOffset);
+                    onScrollableScrolled(scrollView, yOffset);
                 }
 
                 @Override
@@ -592,7 +939,8 @@ public class MaterialViewPagerAnimator {
             scrollView.post(new Runnable() {
                 @Override
                 public void run() {
-                    setScrollOffset(scrollView, lastYOffset);
+                    if (scrollables.get(slot) == scrollView)
+                        setScrollOffset(slot, scrollModel.getLastYOffset());
                 }
             });
         }
@@ -608,17 +956,22 @@ public class MaterialViewPagerAnimator {
      */
     public void registerWebView(final ObservableWebView webView, final ObservableScrollViewCallbacks observableScrollViewCallbacks) {
         if (webView != null) {
-            if (scrollViewList.isEmpty())
+            //registered again, remove the previous listener
+            stopListening(webView);
+
+            if (scrollables.isEmpty())
                 onMaterialScrolled(webView, webView.getCurrentScrollY());
-            scrollViewList.add(webView);  //add to the scrollable list
+            final int slot = scrollables.register(webView, webView.getCurrentScrollY());  //add to the scrollables
+            //given back to the webView when unregistered
+            onScrollableRegistered(webView, slot, observableScrollViewCallbacks, observableScrollViewCallbacks);
             webView.setScrollViewCallbacks(new ObservableScrollViewCallbacks() {
                 @Override
                 public void onScrollChanged(int yOffset, boolean b, boolean b2) {
                     if (observableScrollViewCallbacks != null)
                         observableScrollViewCallbacks.onScrollChanged(yOffset, b, b2);
 
-                    if (isNewYOffset(yOffset))
-                        onMaterialScrolled(webView, yOffset);
+                    scrollables.setReportedYOffset(slot, yOffset);
+                    onScrollableScrolled(webView, yOffset);
                 }
 
                 @Override
@@ -634,32 +987,239 @@ public class MaterialViewPagerAnimator {
                 }
             });
 
-            this.setScrollOffset(webView, -lastYOffset);
+            this.setScrollOffset(slot, -scrollModel.getLastYOffset());
+        }
+    }
+
+    /**
+     * Stop listening to this RecyclerView, its RecyclerView.OnScrollListener is removed
+     * Done automatically while the RecyclerView is detached from the window, until it is attached again (from HONEYCOMB_MR1)
+     */
+    public void unregisterRecyclerView(RecyclerView recyclerView) {
+        unregisterScrollable(recyclerView);
+    }
+
+    /**
+     * Stop listening to this ScrollView, it gets back the ObservableScrollViewCallbacks given to registerScrollView
+     * Done automatically while the ScrollView is detached from the window, until it is attached again (from HONEYCOMB_MR1)
+     */
+    public void unregisterScrollView(ObservableScrollView scrollView) {
+        unregisterScrollable(scrollView);
+    }
+
+    /**
+     * Stop listening to this WebView, it gets back the ObservableScrollViewCallbacks given to registerWebView
+     * Done automatically while the WebView is detached from the window, until it is attached again (from HONEYCOMB_MR1)
+     */
+    public void unregisterWebView(ObservableWebView webView) {
+        unregisterScrollable(webView);
+    }
+
+    /**
+     * Remove the scrollable from the scrollables, remove its scroll listener and its attach listener
+     * Its slot will be reused by the next registered scrollable
+     */
+    protected void unregisterScrollable(View scrollable) {
+        if (scrollable == null)
+            return;
+        stopListening(scrollable);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1)
+            removeAttachStateListener(scrollable);
+    }
+
+    /**
+     * Remove the scrollable from the scrollables and remove its scroll listener
+     * Its attach listener stays, to register it again once attached
+     */
+    private void stopListening(View scrollable) {
+        int slot = scrollables.indexOf(scrollable);
+        if (slot == -1)
+            return;
+
+        Object listener = scrollables.getListener(slot);
+        if (scrollable instanceof RecyclerView) {
+            if (listener != null)
+                ((RecyclerView) scrollable).removeOnScrollListener((RecyclerView.OnScrollListener) listener);
+        } else if (scrollable instanceof ObservableScrollView) {
+            ((ObservableScrollView) scrollable).setScrollViewCallbacks((ObservableScrollViewCallbacks) listener);
+        } else if (scrollable instanceof ObservableWebView) {
+            ((ObservableWebView) scrollable).setScrollViewCallbacks((ObservableScrollViewCallbacks) listener);
         }
+
+        scrollables.unregister(scrollable);
     }
 
     //endregion
 
+    /**
+     * Listen to the scrolls applied on the scrollables by dispatchScrollOffset
+     */
+    public void setOnScrollSyncListener(OnScrollSyncListener onScrollSyncListener) {
+        this.onScrollSyncListener = onScrollSyncListener;
+    }
+
+    /**
+     * @return the writer of header views properties, to read how many writes were done or saved
+     */
+    public MaterialViewPagerPropertyWriter getPropertyWriter() {
+        return propertyWriter;
+    }
+
+    /**
+     * Record the scroll events received into scrollTrace, to export or replay them
+     * Debug only
+     *
+     * @param scrollTrace the trace to fill, null to stop recording
+     */
+    public void setScrollTrace(MaterialViewPagerScrollTrace scrollTrace) {
+        this.scrollTrace = scrollTrace;
+    }
+
+    public MaterialViewPagerScrollTrace getScrollTrace() {
+        return scrollTrace;
+    }
+
+    /**
+     * Measure the cost of the header (scroll events, sibling scrolls, property writes, image loads)
+     * Only the image loads of this MaterialViewPager's header are notified
+     *
+     * @param metrics the receiver, ex: a MaterialViewPagerMetricsCollector, null to stop measuring
+     */
+    public void setMetrics(MaterialViewPagerMetrics metrics) {
+        this.metrics = metrics;
+        if (layerManager != null)
+            layerManager.setMetrics(metrics);
+    }
+
+    public MaterialViewPagerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Measure the frames while the header is animating, and report the slow ones by header state
+     * Only the image fades of this MaterialViewPager's header are monitored
+     *
+     * @param jankMonitor the monitor, null to stop monitoring
+     */
+    public void setJankMonitor(MaterialViewPagerJankMonitor jankMonitor) {
+        this.jankMonitor = jankMonitor;
+    }
+
+    public MaterialViewPagerJankMonitor getJankMonitor() {
+        return jankMonitor;
+    }
+
+    /**
+     * Promote the header views moved by view properties to hardware layers, only while they move
+     * The logo & tabs while collapsing, the toolbar layout during its enter animation
+     * The header image never gets one by default, its content changes (KenBurnsView, crossfade)
+     * The default policies can be changed with layerManager.setPolicy
+     *
+     * @param layerManager the manager, null to stop managing layers
+     */
+    public void setLayerManager(MaterialViewPagerLayerManager layerManager) {
+        if (this.layerManager != null)
+            this.layerManager.demoteAll();
+        this.layerManager = layerManager;
+        if (layerManager != null) {
+            layerManager.setMetrics(metrics);
+            layerManager.setPolicy(mHeader.mLogo, MaterialViewPagerJankMonitor.STATE_COLLAPSING);
+            layerManager.setPolicy(mHeader.mPagerSlidingTabStrip, MaterialViewPagerJankMonitor.STATE_COLLAPSING);
+            //contains the logo & tabs, moved as a whole by animateEnterToolbarLayout
+            layerManager.setPolicy(mHeader.toolbarLayout, MaterialViewPagerJankMonitor.STATE_TOOLBAR_ANIMATION);
+        }
+    }
+
+    public MaterialViewPagerLayerManager getLayerManager() {
+        return layerManager;
+    }
+
+    /**
+     * Notify the jankMonitor and the layerManager of what the header is doing during this frame
+     *
+     * @param state one of MaterialViewPagerJankMonitor.STATE_*
+     */
+    protected void onHeaderState(int state) {
+        if (jankMonitor != null)
+            jankMonitor.onHeaderState(state);
+        if (layerManager != null)
+            layerManager.onHeaderState(state);
+    }
+
     public void restoreScroll(final float scroll, final MaterialViewPagerSettings settings) {
-        //try to scroll up, on a looper to wait until restored
-        new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                if(!onMaterialScrolled(null, scroll)){
-                    restoreScroll(scroll,settings);
+        //views may have been modified while restoring
+        propertyWriter.invalidate();
+
+        //already laid out, or nothing to restore
+        if (scroll == scrollModel.getLastYOffset() || onMaterialScrolled(null, scroll)) {
+            cancelRestoreScroll();
+            return;
+        }
+
+        //restore once the header is laid out
+        pendingRestoreYOffset = scroll;
+        if (restoreScrollListener == null && mHeader.toolbarLayout != null) {
+            restoreScrollListener = new ViewTreeObserver.OnGlobalLayoutListener() {
+                @Override
+                public void onGlobalLayout() {
+                    updateHeaderMetrics();
+                    if (pendingRestoreYOffset == scrollModel.getLastYOffset() || onMaterialScrolled(null, pendingRestoreYOffset))
+                        cancelRestoreScroll();
                 }
-            }
-        },100);
+            };
+            mHeader.toolbarLayout.getViewTreeObserver().addOnGlobalLayoutListener(restoreScrollListener);
+        }
+    }
 
+    @SuppressWarnings("deprecation")
+    private void cancelRestoreScroll() {
+        if (restoreScrollListener != null) {
+            //removeOnGlobalLayoutListener only exists from JELLY_BEAN
+            mHeader.toolbarLayout.getViewTreeObserver().removeGlobalOnLayoutListener(restoreScrollListener);
+            restoreScrollListener = null;
+        }
+    }
+
+    /**
+     * Called when a ViewPager page is selected
+     * Sync the scrollables which are now next to the current page
+     */
+    public void onViewPagerPageSelected(int position) {
+        if (position == lastSelectedPage)
+            return;
+        lastSelectedPage = position;
+
+        if (settings.lazyScrollSync)
+            applyPendingScrollOffsets();
     }
 
     public void onViewPagerPageChanged() {
-        scrollDown(lastYOffset);
+        scrollModel.scrollDown(scrollModel.getLastYOffset(), headerMetrics);
+        applyToolbarOutput(scrollModel.output);
 
-        View visibleView = getTheVisibileView(scrollViewList);
+        View visibleView = getTheVisibileView(scrollables);
         if (!canScroll(visibleView)) {
-            followScrollToolbarLayout(0);
+            scrollModel.followScrollToolbarLayout(0, headerMetrics);
+            applyToolbarOutput(scrollModel.output);
             onMaterialScrolled(visibleView, 0);
         }
     }
+
+    public interface OnScrollSyncListener {
+        //moved by the difference with its last yOffset (RecyclerView.scrollBy), without layout pass
+        int SYNC_DELTA = 0;
+        //moved with scrollToPositionWithOffset, request a layout pass
+        int SYNC_LAYOUT = 1;
+        //moved with scrollTo (ScrollView, WebView)
+        int SYNC_SCROLL_TO = 2;
+
+        /**
+         * Called when dispatchScrollOffset scrolled a scrollable
+         *
+         * @param scrollable the scrolled scrollable
+         * @param yOffset    its new yOffset
+         * @param syncType   SYNC_DELTA, SYNC_LAYOUT or SYNC_SCROLL_TO
+         */
+        void onScrollSynced(View scrollable, int yOffset, int syncType);
+    }
 }
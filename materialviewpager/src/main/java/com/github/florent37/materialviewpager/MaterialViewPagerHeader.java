@@ -1,12 +1,13 @@
 package com.github.florent37.materialviewpager;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.graphics.Rect;
+import android.os.Build;
 import android.support.v7.widget.Toolbar;
 import android.view.View;
 import android.view.ViewTreeObserver;
 
-import com.nineoldandroids.view.ViewHelper;
-
 import static com.github.florent37.materialviewpager.Utils.dpToPx;
 
 /**
@@ -39,6 +40,10 @@ public class MaterialViewPagerHeader {
     public float originalTitleX;
     public float finalScale;
 
+    //logo bounds & toolbar height used by the last computeLogoPositions
+    private final Rect logoBounds = new Rect();
+    private int toolbarHeight;
+
     private MaterialViewPagerHeader(Toolbar toolbar) {
         this.toolbar = toolbar;
         this.context = toolbar.getContext();
@@ -56,15 +61,8 @@ public class MaterialViewPagerHeader {
     public MaterialViewPagerHeader withPagerSlidingTabStrip(View pagerSlidingTabStrip) {
         this.mPagerSlidingTabStrip = pagerSlidingTabStrip;
 
-        mPagerSlidingTabStrip.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
-            @Override
-            public boolean onPreDraw() {
-                finalTabsY = dpToPx(-2, context);
-
-                mPagerSlidingTabStrip.getViewTreeObserver().removeOnPreDrawListener(this);
-                return false;
-            }
-        });
+        //does not depend on the layout
+        finalTabsY = dpToPx(-2, context);
 
         return this;
     }
@@ -96,36 +94,69 @@ public class MaterialViewPagerHeader {
     public MaterialViewPagerHeader withLogo(View logo) {
         this.mLogo = logo;
 
-        //when logo get a height, initialise initial & final logo positions
-        toolbarLayout.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+        //once the logo gets a height, initialise initial & final logo positions
+        //computed before the draw, without cancelling it
+        toolbarLayout.getViewTreeObserver().addOnGlobalLayoutListener(new ViewTreeObserver.OnGlobalLayoutListener() {
             @Override
-            public boolean onPreDraw() {
-                //rotation fix, if not set, originalTitleY = Na
-                ViewHelper.setTranslationY(mLogo,0);
-                ViewHelper.setTranslationX(mLogo, 0);
-
-                originalTitleY = ViewHelper.getY(mLogo);
-                originalTitleX = ViewHelper.getX(mLogo);
-
-                originalTitleHeight = mLogo.getHeight();
-                finalTitleHeight = dpToPx(21, context);
-
-                //the final scale of the logo
-                finalScale = finalTitleHeight / originalTitleHeight;
-
-                finalTitleY = (toolbar.getPaddingTop() + toolbar.getHeight()) / 2 - finalTitleHeight / 2 - (1 - finalScale) * finalTitleHeight;
-
-                //(mLogo.getWidth()/2) *(1-finalScale) is the margin left added by the scale() on the logo
-                //when logo scaledown, the content stay in center, so we have to anually remove the left padding
-                finalTitleX = dpToPx(52f, context) - (mLogo.getWidth() / 2) * (1 - finalScale);
-
-                toolbarLayout.getViewTreeObserver().removeOnPreDrawListener(this);
-                return false;
+            public void onGlobalLayout() {
+                if (!computeLogoPositions())
+                    return;
+                //from HONEYCOMB, only the layouts of the logo & toolbar are followed, else recomputed if they changed
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+                    toolbarLayout.getViewTreeObserver().removeGlobalOnLayoutListener(this);
+                    computeLogoPositionsOnLayout();
+                }
             }
         });
         return this;
     }
 
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private void computeLogoPositionsOnLayout() {
+        View.OnLayoutChangeListener onLayoutChangeListener = new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                computeLogoPositions();
+            }
+        };
+        mLogo.addOnLayoutChangeListener(onLayoutChangeListener);
+        toolbar.addOnLayoutChangeListener(onLayoutChangeListener);
+    }
+
+    /**
+     * @return false if the logo is not laid out yet
+     */
+    private boolean computeLogoPositions() {
+        if (mLogo.getHeight() == 0)
+            return false;
+
+        //same layout, same positions
+        int currentToolbarHeight = toolbar.getPaddingTop() + toolbar.getHeight();
+        if (mLogo.getLeft() == logoBounds.left && mLogo.getTop() == logoBounds.top
+                && mLogo.getRight() == logoBounds.right && mLogo.getBottom() == logoBounds.bottom
+                && currentToolbarHeight == toolbarHeight)
+            return true;
+        logoBounds.set(mLogo.getLeft(), mLogo.getTop(), mLogo.getRight(), mLogo.getBottom());
+        toolbarHeight = currentToolbarHeight;
+
+        //positions without translation (the logo may be moved by the scroll)
+        originalTitleY = mLogo.getTop();
+        originalTitleX = mLogo.getLeft();
+
+        originalTitleHeight = mLogo.getHeight();
+        finalTitleHeight = dpToPx(21, context);
+
+        //the final scale of the logo
+        finalScale = finalTitleHeight / originalTitleHeight;
+
+        finalTitleY = (toolbar.getPaddingTop() + toolbar.getHeight()) / 2 - finalTitleHeight / 2 - (1 - finalScale) * finalTitleHeight;
+
+        //(mLogo.getWidth()/2) *(1-finalScale) is the margin left added by the scale() on the logo
+        //when logo scaledown, the content stay in center, so we have to anually remove the left padding
+        finalTitleX = dpToPx(52f, context) - (mLogo.getWidth() / 2) * (1 - finalScale);
+        return true;
+    }
+
     public Toolbar getToolbar() {
         return toolbar;
     }
@@ -0,0 +1,205 @@
+package com.github.florent37.materialviewpager;
+
+import android.annotation.TargetApi;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Outline;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.view.View;
+
+import com.nineoldandroids.view.ViewHelper;
+
+/**
+ * Paint the header color of the toolbar, the toolbar layout background and the tabs in one pass
+ * (if attr viewpager_compositeHeaderColor = true)
+ *
+ * Set as background of the toolbar layout, the parent of those views, which keep a transparent background
+ * Each region follows the bounds of its view (with translationY), with its own alpha
+ * Overlapping regions with the same alpha are filled once, so the pixels under the toolbar are not painted 3 times
+ * A color / percent / scroll change only invalidates this drawable, instead of the 3 views
+ */
+public class MaterialViewPagerHeaderColorDrawable extends Drawable {
+
+    public static final int REGION_TOOLBAR = 0;
+    public static final int REGION_TOOLBAR_LAYOUT_BACKGROUND = 1;
+    public static final int REGION_TABS = 2;
+
+    public static final int REGION_COUNT = 3;
+
+    private final Paint paint = new Paint();
+
+    private int color;
+
+    //the view of each region, null if the region is not displayed
+    private final View[] regionViews = new View[REGION_COUNT];
+    private final float[] regionAlphas = new float[REGION_COUNT];
+    //region bounds, in the host coordinates
+    private final int[] regionTops = new int[REGION_COUNT];
+    private final int[] regionBottoms = new int[REGION_COUNT];
+    private final boolean[] regionVisible = new boolean[REGION_COUNT];
+
+    //regions already filled during draw, kept to not allocate
+    private final boolean[] drawn = new boolean[REGION_COUNT];
+
+    private final Rect outlineBounds = new Rect();
+
+    public MaterialViewPagerHeaderColorDrawable() {
+        paint.setStyle(Paint.Style.FILL);
+    }
+
+    /**
+     * @param region one of REGION_*
+     * @param view   a child of the host view, the region follows its bounds, can be null
+     */
+    public void setRegionView(int region, View view) {
+        regionViews[region] = view;
+        updateRegions();
+    }
+
+    /**
+     * @param alpha from 0 to 1, multiplied by the color alpha
+     */
+    public void setRegionAlpha(int region, float alpha) {
+        if (regionAlphas[region] != alpha) {
+            regionAlphas[region] = alpha;
+            invalidateSelf();
+        }
+    }
+
+    public float getRegionAlpha(int region) {
+        return regionAlphas[region];
+    }
+
+    public void setColor(int color) {
+        if (this.color != color) {
+            this.color = color;
+            invalidateSelf();
+        }
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    /**
+     * Read again the bounds of the regions views, call it after moving them
+     * Only invalidates if a region moved
+     */
+    public void updateRegions() {
+        boolean changed = false;
+        for (int i = 0; i < REGION_COUNT; ++i) {
+            View view = regionViews[i];
+            boolean visible = view != null && view.getVisibility() == View.VISIBLE;
+            int top = 0;
+            int bottom = 0;
+            if (visible) {
+                float translationY = ViewHelper.getTranslationY(view);
+                top = Math.round(view.getTop() + translationY);
+                bottom = Math.round(view.getBottom() + translationY);
+            }
+            if (visible != regionVisible[i] || top != regionTops[i] || bottom != regionBottoms[i]) {
+                regionVisible[i] = visible;
+                regionTops[i] = top;
+                regionBottoms[i] = bottom;
+                changed = true;
+            }
+        }
+        if (changed) {
+            invalidateSelf();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
+                invalidateHostOutline();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void invalidateHostOutline() {
+        if (getCallback() instanceof View)
+            ((View) getCallback()).invalidateOutline();
+    }
+
+    private boolean isDrawn(int region) {
+        return regionVisible[region] && regionBottoms[region] > regionTops[region] && regionAlphas[region] > 0;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        if (Color.alpha(color) == 0)
+            return;
+
+        Rect bounds = getBounds();
+        for (int i = 0; i < REGION_COUNT; ++i) {
+            drawn[i] = false;
+        }
+
+        for (int i = 0; i < REGION_COUNT; ++i) {
+            if (drawn[i] || !isDrawn(i))
+                continue;
+
+            //merge the overlapping regions with the same alpha, until the band does not grow anymore
+            int top = regionTops[i];
+            int bottom = regionBottoms[i];
+            drawn[i] = true;
+            boolean merged = true;
+            while (merged) {
+                merged = false;
+                for (int j = i + 1; j < REGION_COUNT; ++j) {
+                    if (!drawn[j] && isDrawn(j) && regionAlphas[j] == regionAlphas[i]
+                            && regionTops[j] <= bottom && regionBottoms[j] >= top) {
+                        top = Math.min(top, regionTops[j]);
+                        bottom = Math.max(bottom, regionBottoms[j]);
+                        drawn[j] = true;
+                        merged = true;
+                    }
+                }
+            }
+
+            paint.setColor(HeaderScrollModel.colorWithAlpha(color, regionAlphas[i]));
+            canvas.drawRect(bounds.left, bounds.top + top, bounds.right, bounds.top + bottom, paint);
+        }
+    }
+
+    /**
+     * The shadow (toolbar elevation) is cast by the visible regions
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    @Override
+    public void getOutline(Outline outline) {
+        Rect bounds = getBounds();
+        int top = Integer.MAX_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        for (int i = 0; i < REGION_COUNT; ++i) {
+            if (isDrawn(i)) {
+                top = Math.min(top, regionTops[i]);
+                bottom = Math.max(bottom, regionBottoms[i]);
+            }
+        }
+        if (top >= bottom || Color.alpha(color) == 0) {
+            outline.setEmpty();
+            return;
+        }
+        outlineBounds.set(bounds.left, bounds.top + top, bounds.right, bounds.top + bottom);
+        outline.setRect(outlineBounds);
+        outline.setAlpha(1);
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        //each region has its own alpha, see setRegionAlpha
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        paint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
@@ -5,8 +5,6 @@ import android.content.Context;
 import android.os.Build;
 import android.util.AttributeSet;
 import android.view.View;
-import android.view.ViewGroup;
-import android.view.ViewTreeObserver;
 
 /**
  * Created by florentchampigny on 26/04/15.
@@ -33,31 +31,31 @@ public class MaterialViewPagerHeaderView extends View {
         super(context, attrs, defStyleAttr, defStyleRes);
     }
 
-    private void setMaterialHeight() {
-        //get the MaterialViewPagerAnimator attached to this activity
-        //to retrieve the declared header height
-        //and set it as current view height (+10dp margin)
+    //the header height (+10dp margin), 0 until the MaterialViewPager is found
+    private int materialHeight = 0;
 
-        MaterialViewPagerAnimator animator = MaterialViewPagerHelper.getAnimator(getContext());
-        if (animator != null) {
-            ViewGroup.LayoutParams params = getLayoutParams();
-            params.height = Math.round(Utils.dpToPx(animator.getHeaderHeight() + 10, getContext()));
-            super.setLayoutParams(params);
+    private int getMaterialHeight() {
+        //get the MaterialViewPagerAnimator of the MaterialViewPager containing this view
+        //to retrieve the declared header height
+        if (materialHeight == 0 && !isInEditMode()) {
+            MaterialViewPagerAnimator animator = MaterialViewPagerHelper.getAnimator(this);
+            if (animator != null)
+                materialHeight = Math.round(Utils.dpToPx(animator.getHeaderHeight() + 10, getContext()));
         }
+        return materialHeight;
     }
 
+    /**
+     * Measured with the header height, so the first frame is drawn with the right size
+     * Whatever the height spec : the placeholder layout declares 0dp, so its parents measure it EXACTLY 0
+     */
     @Override
-    protected void onFinishInflate() {
-        super.onFinishInflate();
-        if (!isInEditMode()) {
-            getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
-                @Override
-                public boolean onPreDraw() {
-                    setMaterialHeight();
-                    getViewTreeObserver().removeOnPreDrawListener(this);
-                    return false;
-                }
-            });
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int height = getMaterialHeight();
+        if (height == 0) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        } else {
+            setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec), height);
         }
     }
 }
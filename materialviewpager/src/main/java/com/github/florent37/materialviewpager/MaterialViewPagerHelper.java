@@ -1,10 +1,15 @@
 package com.github.florent37.materialviewpager;
 
+import android.annotation.TargetApi;
 import android.app.Activity;
+import android.app.Application;
 import android.content.Context;
 import android.graphics.Color;
+import android.os.Build;
+import android.os.Bundle;
 import android.support.v7.widget.RecyclerView;
 import android.view.View;
+import android.view.ViewParent;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 
@@ -13,36 +18,138 @@ import com.github.ksoichiro.android.observablescrollview.ObservableScrollViewCal
 import com.github.ksoichiro.android.observablescrollview.ObservableWebView;
 import com.nineoldandroids.animation.ObjectAnimator;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Created by florentchampigny on 25/04/15.
  *
  * MaterialViewPagerHelper attach a MaterialViewPagerAnimator to an activity
- * You can use MaterialViewPagerHelper to retrieve MaterialViewPagerAnimator from context
- * Or register a scrollable to the current activity's MaterialViewPagerAnimator
+ * You can use MaterialViewPagerHelper to retrieve MaterialViewPagerAnimator from context, or from a view inside a MaterialViewPager
+ * Or register a scrollable to the MaterialViewPagerAnimator of the MaterialViewPager containing it
  */
 public class MaterialViewPagerHelper {
 
-    private static ConcurrentHashMap<Object, MaterialViewPagerAnimator> hashMap = new ConcurrentHashMap<>();
+    //the animators of each context (one by MaterialViewPager), weak keys & values
+    //the MaterialViewPager keeps the only strong reference to its animator
+    //so an Activity which missed onDetachedFromWindow can still be garbage collected
+    private static final Map<Context, List<WeakReference<MaterialViewPagerAnimator>>> animators =
+            new WeakHashMap<>();
+
+    //remove the animators of destroyed activities, registered once
+    private static Object activityLifecycleCallbacks;
 
     /**
-     * Register an MaterialViewPagerAnimator attached to an activity into the ConcurrentHashMap
+     * Register an MaterialViewPagerAnimator attached to an activity
+     * Removed when the MaterialViewPager is detached, or when the activity is destroyed
      *
      * @param context  the context
      * @param animator the current MaterialViewPagerAnimator
      */
     public static void register(Context context, MaterialViewPagerAnimator animator) {
-        hashMap.put(context, animator);
+        if (context == null || animator == null)
+            return;
+
+        synchronized (animators) {
+            List<WeakReference<MaterialViewPagerAnimator>> contextAnimators = animators.get(context);
+            if (contextAnimators == null) {
+                contextAnimators = new ArrayList<>(1);
+                animators.put(context, contextAnimators);
+            }
+            if (indexOf(contextAnimators, animator) == -1)
+                contextAnimators.add(new WeakReference<>(animator));
+        }
+
+        if (context instanceof Activity && Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+            unregisterOnDestroy((Activity) context);
     }
 
+    /**
+     * Unregister all the animators of this context
+     */
     public static void unregister(Context context) {
-        if (context != null)
-            hashMap.remove(context);
+        if (context != null) {
+            synchronized (animators) {
+                animators.remove(context);
+            }
+        }
     }
 
     /**
-     * Register a RecyclerView to the current MaterialViewPagerAnimator
+     * Unregister the animator of a MaterialViewPager, the other ones of this context stay registered
+     */
+    public static void unregister(Context context, MaterialViewPagerAnimator animator) {
+        if (context != null) {
+            synchronized (animators) {
+                List<WeakReference<MaterialViewPagerAnimator>> contextAnimators = animators.get(context);
+                if (contextAnimators != null) {
+                    int index = indexOf(contextAnimators, animator);
+                    if (index != -1)
+                        contextAnimators.remove(index);
+                    if (contextAnimators.isEmpty())
+                        animators.remove(context);
+                }
+            }
+        }
+    }
+
+    //also removes the garbage collected animators
+    private static int indexOf(List<WeakReference<MaterialViewPagerAnimator>> contextAnimators, MaterialViewPagerAnimator animator) {
+        int index = -1;
+        for (int i = contextAnimators.size() - 1; i >= 0; --i) {
+            MaterialViewPagerAnimator contextAnimator = contextAnimators.get(i).get();
+            if (contextAnimator == null)
+                contextAnimators.remove(i);
+            else if (contextAnimator == animator)
+                index = i;
+        }
+        return index;
+    }
+
+    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+    private static synchronized void unregisterOnDestroy(Activity activity) {
+        if (activityLifecycleCallbacks != null)
+            return;
+
+        Application.ActivityLifecycleCallbacks callbacks = new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+                unregister(activity);
+            }
+
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityStarted(Activity activity) {
+            }
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            }
+        };
+        activity.getApplication().registerActivityLifecycleCallbacks(callbacks);
+        activityLifecycleCallbacks = callbacks;
+    }
+
+    /**
+     * Register a RecyclerView to the MaterialViewPagerAnimator of the MaterialViewPager containing it
      * Listen to RecyclerView.OnScrollListener so give to $[onScrollListener] your RecyclerView.OnScrollListener if you already use one
      * For loadmore or anything else
      *
@@ -51,16 +158,21 @@ public class MaterialViewPagerHelper {
      * @param onScrollListener use it if you want to get a callback of the RecyclerView
      */
     public static void registerRecyclerView(Activity activity, RecyclerView recyclerView, RecyclerView.OnScrollListener onScrollListener) {
-        if (activity != null && hashMap.containsKey(activity)) {
-            MaterialViewPagerAnimator animator = hashMap.get(activity);
-            if (animator != null) {
-                animator.registerRecyclerView(recyclerView, onScrollListener);
+        if (recyclerView != null) {
+            MaterialViewPagerAnimator animator = findAnimator(activity, recyclerView);
+            if (animator == null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1) {
+                registerOnAttach(recyclerView, onScrollListener);
+                return;
             }
+            if (animator == null) //can't wait for the attach, use the last MaterialViewPager of the activity
+                animator = getAnimator(activity);
+            if (animator != null)
+                animator.registerRecyclerView(recyclerView, onScrollListener);
         }
     }
 
     /**
-     * Register a WebView to the current MaterialViewPagerAnimator
+     * Register a WebView to the MaterialViewPagerAnimator of the MaterialViewPager containing it
      * Listen to ObservableScrollViewCallbacks so give to $[observableScrollViewCallbacks] your ObservableScrollViewCallbacks if you already use one
      * For loadmore or anything else
      *
@@ -69,16 +181,21 @@ public class MaterialViewPagerHelper {
      * @param observableScrollViewCallbacks use it if you want to get a callback of the RecyclerView
      */
     public static void registerWebView(Activity activity, ObservableWebView webView, ObservableScrollViewCallbacks observableScrollViewCallbacks) {
-        if (activity != null && hashMap.containsKey(activity)) {
-            MaterialViewPagerAnimator animator = hashMap.get(activity);
-            if (animator != null) {
-                animator.registerWebView(webView, observableScrollViewCallbacks);
+        if (webView != null) {
+            MaterialViewPagerAnimator animator = findAnimator(activity, webView);
+            if (animator == null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1) {
+                registerOnAttach(webView, observableScrollViewCallbacks);
+                return;
             }
+            if (animator == null) //can't wait for the attach, use the last MaterialViewPager of the activity
+                animator = getAnimator(activity);
+            if (animator != null)
+                animator.registerWebView(webView, observableScrollViewCallbacks);
         }
     }
 
     /**
-     * Register a ScrollView to the current MaterialViewPagerAnimator
+     * Register a ScrollView to the MaterialViewPagerAnimator of the MaterialViewPager containing it
      * Listen to ObservableScrollViewCallbacks so give to $[observableScrollViewCallbacks] your ObservableScrollViewCallbacks if you already use one
      * For loadmore or anything else
      *
@@ -87,22 +204,151 @@ public class MaterialViewPagerHelper {
      * @param observableScrollViewCallbacks use it if you want to get a callback of the RecyclerView
      */
     public static void registerScrollView(Activity activity, ObservableScrollView mScrollView, ObservableScrollViewCallbacks observableScrollViewCallbacks) {
-        if (activity != null && hashMap.containsKey(activity)) {
-            MaterialViewPagerAnimator animator = hashMap.get(activity);
-            if (animator != null) {
-                animator.registerScrollView(mScrollView, observableScrollViewCallbacks);
+        if (mScrollView != null) {
+            MaterialViewPagerAnimator animator = findAnimator(activity, mScrollView);
+            if (animator == null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1) {
+                registerOnAttach(mScrollView, observableScrollViewCallbacks);
+                return;
             }
+            if (animator == null) //can't wait for the attach, use the last MaterialViewPager of the activity
+                animator = getAnimator(activity);
+            if (animator != null)
+                animator.registerScrollView(mScrollView, observableScrollViewCallbacks);
         }
     }
 
+    /**
+     * Unregister a RecyclerView from the current MaterialViewPagerAnimator
+     * Done automatically while the RecyclerView is detached from the window, until it is attached again (from Android 3.1)
+     *
+     * @param activity     current context
+     * @param recyclerView the scrollable
+     */
+    public static void unregisterRecyclerView(Activity activity, RecyclerView recyclerView) {
+        MaterialViewPagerAnimator animator = recyclerView != null ? findAnimator(activity, recyclerView) : null;
+        if (animator != null)
+            animator.unregisterRecyclerView(recyclerView);
+    }
+
+    /**
+     * Unregister a WebView from the current MaterialViewPagerAnimator
+     * Done automatically while the WebView is detached from the window, until it is attached again (from Android 3.1)
+     *
+     * @param activity current context
+     * @param webView  the scrollable
+     */
+    public static void unregisterWebView(Activity activity, ObservableWebView webView) {
+        MaterialViewPagerAnimator animator = webView != null ? findAnimator(activity, webView) : null;
+        if (animator != null)
+            animator.unregisterWebView(webView);
+    }
+
+    /**
+     * Unregister a ScrollView from the current MaterialViewPagerAnimator
+     * Done automatically while the ScrollView is detached from the window, until it is attached again (from Android 3.1)
+     *
+     * @param activity    current context
+     * @param mScrollView the scrollable
+     */
+    public static void unregisterScrollView(Activity activity, ObservableScrollView mScrollView) {
+        MaterialViewPagerAnimator animator = mScrollView != null ? findAnimator(activity, mScrollView) : null;
+        if (animator != null)
+            animator.unregisterScrollView(mScrollView);
+    }
+
     /**
      * Retrieve the current MaterialViewPagerAnimator used in this context (Activity)
+     * If the context contains multiple MaterialViewPagers, use getAnimator(View)
      *
      * @param context the context
-     * @return current MaterialViewPagerAnimator
+     * @return current MaterialViewPagerAnimator, the last registered if multiple
      */
     public static MaterialViewPagerAnimator getAnimator(Context context) {
-        return hashMap.get(context);
+        if (context == null)
+            return null;
+        synchronized (animators) {
+            List<WeakReference<MaterialViewPagerAnimator>> contextAnimators = animators.get(context);
+            if (contextAnimators != null) {
+                for (int i = contextAnimators.size() - 1; i >= 0; --i) {
+                    MaterialViewPagerAnimator animator = contextAnimators.get(i).get();
+                    if (animator != null)
+                        return animator;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieve the MaterialViewPagerAnimator of the MaterialViewPager containing this view
+     * The MaterialViewPager is found by walking up the view hierarchy, then cached into the view
+     * If the view is not attached yet, use the animator of its context if it contains only one MaterialViewPager
+     *
+     * @param view a view inside a MaterialViewPager (ex: a scrollable)
+     * @return its MaterialViewPagerAnimator, null if not found
+     */
+    public static MaterialViewPagerAnimator getAnimator(View view) {
+        if (view == null)
+            return null;
+        return findAnimator(view.getContext(), view);
+    }
+
+    private static MaterialViewPagerAnimator findAnimator(Context context, View view) {
+        Object cachedAnimator = view.getTag(R.id.materialviewpager_animator);
+        if (cachedAnimator instanceof MaterialViewPagerAnimator)
+            return (MaterialViewPagerAnimator) cachedAnimator;
+
+        ViewParent parent = view.getParent();
+        while (parent instanceof View) {
+            if (parent instanceof MaterialViewPager) {
+                MaterialViewPagerAnimator animator = ((MaterialViewPager) parent).animator;
+                if (animator != null)
+                    view.setTag(R.id.materialviewpager_animator, animator);
+                return animator;
+            }
+            parent = parent.getParent();
+        }
+
+        //not inside a MaterialViewPager yet, only use the context if there's no ambiguity
+        synchronized (animators) {
+            List<WeakReference<MaterialViewPagerAnimator>> contextAnimators = animators.get(context);
+            if (contextAnimators != null) {
+                //only to remove the garbage collected animators
+                indexOf(contextAnimators, null);
+                if (contextAnimators.size() == 1)
+                    return contextAnimators.get(0).get();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The MaterialViewPager containing this scrollable can't be found yet (multiple MaterialViewPager in its context)
+     * Register it to its MaterialViewPager once attached into the view hierarchy
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB_MR1)
+    private static void registerOnAttach(View scrollable, final Object listener) {
+        scrollable.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
+            @Override
+            public void onViewAttachedToWindow(View v) {
+                v.removeOnAttachStateChangeListener(this);
+
+                MaterialViewPagerAnimator animator = getAnimator(v);
+                if (animator == null)
+                    return;
+
+                if (v instanceof RecyclerView)
+                    animator.registerRecyclerView((RecyclerView) v, (RecyclerView.OnScrollListener) listener);
+                else if (v instanceof ObservableScrollView)
+                    animator.registerScrollView((ObservableScrollView) v, (ObservableScrollViewCallbacks) listener);
+                else if (v instanceof ObservableWebView)
+                    animator.registerWebView((ObservableWebView) v, (ObservableScrollViewCallbacks) listener);
+            }
+
+            @Override
+            public void onViewDetachedFromWindow(View v) {
+            }
+        });
     }
 
     private static void webViewLoadJS(WebView webView, String js){
@@ -127,7 +373,7 @@ public class MaterialViewPagerHelper {
     public static void injectHeader(final WebView webView, boolean withAnimation) {
         if (webView != null) {
 
-            MaterialViewPagerAnimator animator = MaterialViewPagerHelper.getAnimator(webView.getContext());
+            MaterialViewPagerAnimator animator = MaterialViewPagerHelper.getAnimator(webView);
             if (animator != null) {
 
                 WebSettings webSettings = webView.getSettings();
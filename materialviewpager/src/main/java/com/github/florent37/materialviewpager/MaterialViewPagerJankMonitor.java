@@ -0,0 +1,327 @@
+package com.github.florent37.materialviewpager;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+/**
+ * Measure the frames while the header is animating, and attribute the slow ones to what the header was doing
+ * (collapsing on scroll, toolbar enter animation, color transition, image fade)
+ *
+ * Opt-in, set with MaterialViewPagerAnimator.setJankMonitor, only works from JELLY_BEAN (uses Choreographer)
+ * Frames are only measured while the header is animating, so an idle header doesn't wake up the Choreographer
+ *
+ * Every reportIntervalFrames measured frames, the durations are sent to the OnJankReportListener
+ */
+public class MaterialViewPagerJankMonitor {
+
+    //the header moved on scroll
+    public static final int STATE_COLLAPSING = 1;
+    //the toolbar enter animation is running
+    public static final int STATE_TOOLBAR_ANIMATION = 1 << 1;
+    //the header color is changing (setColor, animateColorPercent)
+    public static final int STATE_COLOR_TRANSITION = 1 << 2;
+    //the header image is fading
+    public static final int STATE_IMAGE_FADE = 1 << 3;
+
+    public static final int STATE_COUNT = 4;
+
+    public static final int DEFAULT_REPORT_INTERVAL_FRAMES = 600;
+
+    private final OnJankReportListener listener;
+
+    //a frame longer than this is janky
+    private long jankThresholdNanos;
+    private int reportIntervalFrames = DEFAULT_REPORT_INTERVAL_FRAMES;
+
+    //states of the header since the last frame
+    private int pendingState = 0;
+    private long lastFrameTimeNanos = 0;
+    private boolean running = false;
+
+    private int measuredFrames = 0;
+    private long[] jankFrames = new long[STATE_COUNT];
+    private FrameHistogram[] frameDurations = newHistograms();
+
+    //the Choreographer.FrameCallback, kept as Object to load on API < 16
+    private Object frameCallback;
+
+    /**
+     * @param context  used to read the display refresh rate, the default jank threshold is 1.5 frame
+     * @param listener receive the reports
+     */
+    public MaterialViewPagerJankMonitor(Context context, OnJankReportListener listener) {
+        this.listener = listener;
+
+        float refreshRate = 60;
+        WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        if (windowManager != null && windowManager.getDefaultDisplay().getRefreshRate() > 0)
+            refreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+        this.jankThresholdNanos = (long) (1.5f * 1000000000L / refreshRate);
+    }
+
+    public void setJankThresholdNanos(long jankThresholdNanos) {
+        this.jankThresholdNanos = jankThresholdNanos;
+    }
+
+    public long getJankThresholdNanos() {
+        return jankThresholdNanos;
+    }
+
+    /**
+     * @param reportIntervalFrames number of measured frames between two reports
+     */
+    public void setReportIntervalFrames(int reportIntervalFrames) {
+        this.reportIntervalFrames = reportIntervalFrames;
+    }
+
+    /**
+     * Called by the header during the frame, with one of the STATE_* it is doing
+     * Starts measuring frames if not already running
+     */
+    public void onHeaderState(int state) {
+        pendingState |= state;
+        if (!running && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            running = true;
+            postFrameCallback();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (frameCallback == null) {
+            frameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    onFrame(frameTimeNanos);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) frameCallback);
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        int state = pendingState;
+        pendingState = 0;
+
+        //the first frame has no previous frame to measure from
+        if (lastFrameTimeNanos != 0)
+            recordFrame(frameTimeNanos - lastFrameTimeNanos, state);
+
+        if (state == 0) {
+            //the header is idle, stop measuring until the next state
+            running = false;
+            lastFrameTimeNanos = 0;
+        } else {
+            lastFrameTimeNanos = frameTimeNanos;
+            postFrameCallback();
+        }
+    }
+
+    private void recordFrame(long durationNanos, int state) {
+        if (state == 0)
+            return;
+
+        boolean jank = durationNanos > jankThresholdNanos;
+        for (int i = 0; i < STATE_COUNT; ++i) {
+            if ((state & (1 << i)) != 0) {
+                frameDurations[i].add(durationNanos);
+                if (jank)
+                    ++jankFrames[i];
+            }
+        }
+
+        if (++measuredFrames >= reportIntervalFrames)
+            report();
+    }
+
+    /**
+     * Send the frames measured since the last report to the listener, then start a new report
+     */
+    public void report() {
+        Report report = new Report(measuredFrames, jankThresholdNanos, jankFrames, frameDurations);
+
+        measuredFrames = 0;
+        jankFrames = new long[STATE_COUNT];
+        frameDurations = newHistograms();
+
+        if (listener != null)
+            listener.onJankReport(report);
+    }
+
+    private static FrameHistogram[] newHistograms() {
+        FrameHistogram[] histograms = new FrameHistogram[STATE_COUNT];
+        for (int i = 0; i < STATE_COUNT; ++i) {
+            histograms[i] = new FrameHistogram();
+        }
+        return histograms;
+    }
+
+    /**
+     * The frames measured during a report interval
+     * A frame where the header did multiple things is counted into each STATE_*
+     */
+    public static class Report {
+        private final int measuredFrames;
+        private final long jankThresholdNanos;
+        private final long[] jankFrames;
+        private final FrameHistogram[] frameDurations;
+
+        private Report(int measuredFrames, long jankThresholdNanos, long[] jankFrames, FrameHistogram[] frameDurations) {
+            this.measuredFrames = measuredFrames;
+            this.jankThresholdNanos = jankThresholdNanos;
+            this.jankFrames = jankFrames;
+            this.frameDurations = frameDurations;
+        }
+
+        public int getMeasuredFrames() {
+            return measuredFrames;
+        }
+
+        public long getJankThresholdNanos() {
+            return jankThresholdNanos;
+        }
+
+        /**
+         * @param state one of STATE_*
+         */
+        public long getFrames(int state) {
+            return frameDurations[index(state)].getCount();
+        }
+
+        public long getJankFrames(int state) {
+            return jankFrames[index(state)];
+        }
+
+        /**
+         * @param state      one of STATE_*
+         * @param percentile from 0 to 100
+         */
+        public long getPercentileNanos(int state, float percentile) {
+            return frameDurations[index(state)].getPercentileNanos(percentile);
+        }
+
+        public FrameHistogram getFrameDurations(int state) {
+            return frameDurations[index(state)];
+        }
+
+        private static int index(int state) {
+            int index = Integer.numberOfTrailingZeros(state);
+            if (index >= STATE_COUNT || state != (1 << index))
+                throw new IllegalArgumentException("unknown state " + state);
+            return index;
+        }
+
+        @Override
+        public String toString() {
+            return "JankReport{" +
+                    "measuredFrames=" + measuredFrames +
+                    ", collapsing=" + stateToString(STATE_COLLAPSING) +
+                    ", toolbarAnimation=" + stateToString(STATE_TOOLBAR_ANIMATION) +
+                    ", colorTransition=" + stateToString(STATE_COLOR_TRANSITION) +
+                    ", imageFade=" + stateToString(STATE_IMAGE_FADE) +
+                    '}';
+        }
+
+        private String stateToString(int state) {
+            return "{jankFrames=" + getJankFrames(state) + ", frames=" + getFrameDurations(state) + "}";
+        }
+    }
+
+    /**
+     * Frame durations, in linear buckets of 1ms up to 100ms, the longer frames go to an overflow bucket
+     * Precise enough to tell a 17ms frame from a 33ms one (power of 2 buckets can't)
+     */
+    public static class FrameHistogram {
+        public static final int BUCKET_NANOS = 1000000;
+        public static final int BUCKETS = 100;
+
+        //the last one is the overflow bucket
+        private final long[] counts = new long[BUCKETS + 1];
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        public void add(long durationNanos) {
+            if (durationNanos < 0)
+                durationNanos = 0;
+
+            long bucket = durationNanos / BUCKET_NANOS;
+            if (bucket > BUCKETS)
+                bucket = BUCKETS;
+
+            ++counts[(int) bucket];
+            ++count;
+            totalNanos += durationNanos;
+            if (durationNanos > maxNanos)
+                maxNanos = durationNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the frames longer than BUCKETS * BUCKET_NANOS
+         */
+        public long getOverflowCount() {
+            return counts[BUCKETS];
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * @param percentile from 0 to 100
+         * @return the upper bound of the 1ms bucket containing this percentile, the max if it's in the overflow bucket
+         */
+        public long getPercentileNanos(float percentile) {
+            if (count == 0)
+                return 0;
+
+            long rank = (long) Math.ceil(count * percentile / 100f);
+            if (rank < 1)
+                rank = 1;
+
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+                seen += counts[bucket];
+                if (seen >= rank)
+                    return Math.min((bucket + 1L) * BUCKET_NANOS, maxNanos);
+            }
+            return maxNanos;
+        }
+
+        public void reset() {
+            for (int i = 0; i <= BUCKETS; ++i) {
+                counts[i] = 0;
+            }
+            count = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + count +
+                    ", meanMs=" + getMeanNanos() / 1000000f +
+                    ", p50Ms=" + getPercentileNanos(50) / 1000000f +
+                    ", p90Ms=" + getPercentileNanos(90) / 1000000f +
+                    ", p99Ms=" + getPercentileNanos(99) / 1000000f +
+                    ", maxMs=" + maxNanos / 1000000f +
+                    ", overflow=" + getOverflowCount() +
+                    '}';
+        }
+    }
+
+    public interface OnJankReportListener {
+        void onJankReport(Report report);
+    }
+}
@@ -0,0 +1,256 @@
+package com.github.florent37.materialviewpager;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Promote header views to hardware layers while the header is animating, and demote them once it is idle
+ * (if attr viewpager_manageHeaderLayers = true, or set with MaterialViewPagerAnimator.setLayerManager)
+ *
+ * Each view has a policy : the MaterialViewPagerJankMonitor.STATE_* during which it gets a layer, 0 to never get one
+ * The states are notified on each frame of the transition, a state is idle after idleDelayMillis without notification
+ *
+ * The layers memory is estimated (width * height * 4 bytes) and sent to MaterialViewPagerMetrics.onHeaderLayersChanged
+ * A view is not promoted if its layer would exceed the budget
+ */
+public class MaterialViewPagerLayerManager {
+
+    public static final long DEFAULT_IDLE_DELAY_MILLIS = 150;
+
+    //used to post the idle checks
+    private final View host;
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private long idleDelayMillis = DEFAULT_IDLE_DELAY_MILLIS;
+    private long layerBudgetBytes = Long.MAX_VALUE;
+
+    //STATE_* notified during the last idleDelayMillis
+    private int activeStates = 0;
+    private final long[] lastStateTimes = new long[MaterialViewPagerJankMonitor.STATE_COUNT];
+    private boolean idleCheckScheduled = false;
+
+    private int layerCount = 0;
+    private long layerBytes = 0;
+
+    private MaterialViewPagerMetrics metrics;
+
+    private final Runnable idleCheck = new Runnable() {
+        @Override
+        public void run() {
+            idleCheckScheduled = false;
+            checkIdleStates();
+        }
+    };
+
+    /**
+     * @param host a view of the header, used to post the idle checks
+     */
+    public MaterialViewPagerLayerManager(View host) {
+        this.host = host;
+    }
+
+    /**
+     * @param view   the view to promote, ignored if null
+     * @param states the MaterialViewPagerJankMonitor.STATE_* during which the view gets a hardware layer, 0 to never
+     */
+    public void setPolicy(View view, int states) {
+        if (view == null)
+            return;
+
+        Entry entry = findEntry(view);
+        if (entry == null) {
+            entry = new Entry(view);
+            entries.add(entry);
+        }
+        entry.states = states;
+        updateLayers();
+    }
+
+    /**
+     * @return the MaterialViewPagerJankMonitor.STATE_* during which the view gets a hardware layer
+     */
+    public int getPolicy(View view) {
+        Entry entry = findEntry(view);
+        return entry == null ? 0 : entry.states;
+    }
+
+    /**
+     * Stop managing this view, demote it if promoted
+     */
+    public void removePolicy(View view) {
+        Entry entry = findEntry(view);
+        if (entry != null) {
+            entries.remove(entry);
+            if (entry.promoted) {
+                demote(entry);
+                notifyLayersChanged();
+            }
+        }
+    }
+
+    private Entry findEntry(View view) {
+        for (int i = 0, size = entries.size(); i < size; ++i) {
+            if (entries.get(i).view == view)
+                return entries.get(i);
+        }
+        return null;
+    }
+
+    /**
+     * @param idleDelayMillis time without notification after which a state is idle
+     */
+    public void setIdleDelayMillis(long idleDelayMillis) {
+        this.idleDelayMillis = idleDelayMillis;
+    }
+
+    /**
+     * @param layerBudgetBytes maximum estimated memory of the promoted views
+     */
+    public void setLayerBudgetBytes(long layerBudgetBytes) {
+        this.layerBudgetBytes = layerBudgetBytes;
+    }
+
+    public long getLayerBudgetBytes() {
+        return layerBudgetBytes;
+    }
+
+    public void setMetrics(MaterialViewPagerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return number of views currently promoted
+     */
+    public int getLayerCount() {
+        return layerCount;
+    }
+
+    /**
+     * @return estimated memory of the views currently promoted
+     */
+    public long getLayerBytes() {
+        return layerBytes;
+    }
+
+    /**
+     * Called by the header on each frame of a transition, with one of the MaterialViewPagerJankMonitor.STATE_*
+     */
+    public void onHeaderState(int state) {
+        long now = SystemClock.uptimeMillis();
+        for (int i = 0; i < MaterialViewPagerJankMonitor.STATE_COUNT; ++i) {
+            if ((state & (1 << i)) != 0)
+                lastStateTimes[i] = now;
+        }
+
+        if ((activeStates & state) != state) {
+            activeStates |= state;
+            updateLayers();
+        }
+
+        if (!idleCheckScheduled) {
+            idleCheckScheduled = true;
+            host.postDelayed(idleCheck, idleDelayMillis);
+        }
+    }
+
+    private void checkIdleStates() {
+        long now = SystemClock.uptimeMillis();
+        int states = activeStates;
+        for (int i = 0; i < MaterialViewPagerJankMonitor.STATE_COUNT; ++i) {
+            if ((states & (1 << i)) != 0 && now - lastStateTimes[i] >= idleDelayMillis)
+                states &= ~(1 << i);
+        }
+
+        if (states != activeStates) {
+            activeStates = states;
+            updateLayers();
+        }
+
+        if (activeStates != 0) {
+            idleCheckScheduled = true;
+            host.postDelayed(idleCheck, idleDelayMillis);
+        }
+    }
+
+    /**
+     * Demote all views, ex: when the header is detached
+     */
+    public void demoteAll() {
+        host.removeCallbacks(idleCheck);
+        idleCheckScheduled = false;
+        activeStates = 0;
+        updateLayers();
+    }
+
+    private void updateLayers() {
+        boolean changed = false;
+        for (int i = 0, size = entries.size(); i < size; ++i) {
+            Entry entry = entries.get(i);
+            boolean promote = (entry.states & activeStates) != 0;
+            if (promote && !entry.promoted) {
+                changed |= promote(entry);
+            } else if (!promote && entry.promoted) {
+                demote(entry);
+                changed = true;
+            }
+        }
+        if (changed)
+            notifyLayersChanged();
+    }
+
+    private boolean promote(Entry entry) {
+        View view = entry.view;
+        //a hardware layer on a software rendered view would be a software layer, slower than no layer
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB || !isHardwareAccelerated(view))
+            return false;
+        if (view.getVisibility() != View.VISIBLE || view.getWidth() == 0 || view.getHeight() == 0)
+            return false;
+
+        long bytes = 4L * view.getWidth() * view.getHeight();
+        if (layerBytes + bytes > layerBudgetBytes)
+            return false;
+
+        ViewCompat.setLayerType(view, ViewCompat.LAYER_TYPE_HARDWARE, null);
+        entry.promoted = true;
+        entry.layerBytes = bytes;
+        ++layerCount;
+        layerBytes += bytes;
+        return true;
+    }
+
+    private void demote(Entry entry) {
+        ViewCompat.setLayerType(entry.view, ViewCompat.LAYER_TYPE_NONE, null);
+        entry.promoted = false;
+        --layerCount;
+        layerBytes -= entry.layerBytes;
+        entry.layerBytes = 0;
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static boolean isHardwareAccelerated(View view) {
+        return view.isHardwareAccelerated();
+    }
+
+    private void notifyLayersChanged() {
+        if (metrics != null)
+            metrics.onHeaderLayersChanged(layerCount, layerBytes);
+    }
+
+    private static class Entry {
+        final View view;
+        int states;
+        boolean promoted;
+        long layerBytes;
+
+        Entry(View view) {
+            this.view = view;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.florent37.materialviewpager;
+
+/**
+ * Receive the cost of the MaterialViewPager header, set with MaterialViewPagerAnimator.setMetrics
+ * All methods are called on the main thread, keep them cheap
+ *
+ * MaterialViewPagerMetricsCollector is an implementation keeping counters & histograms
+ */
+public interface MaterialViewPagerMetrics {
+
+    /**
+     * A registered scrollable notified a scroll
+     */
+    void onScrollEventReceived();
+
+    /**
+     * A scroll event has been replaced by a newer one before being applied (if attr viewpager_coalesceScrollEvents = true)
+     */
+    void onScrollEventCoalesced();
+
+    /**
+     * The header and the other scrollables have been updated for a new yOffset
+     *
+     * @param durationNanos  time spent into MaterialViewPagerAnimator.onMaterialScrolled
+     * @param siblingScrolls number of other scrollables scrolled to the new yOffset
+     * @param propertyWrites number of properties written on the header views
+     */
+    void onHeaderScrolled(long durationNanos, int siblingScrolls, long propertyWrites);
+
+    /**
+     * A header image has been loaded
+     *
+     * @param loadNanos time between the load request and the image ready
+     */
+    void onImageLoaded(long loadNanos);
+
+    /**
+     * A header image is fully displayed
+     *
+     * @param fadeNanos time between the image change request and the end of the fade in
+     */
+    void onImageFaded(long fadeNanos);
+
+    /**
+     * Header views have been promoted to / demoted from hardware layers, see MaterialViewPagerLayerManager
+     *
+     * @param layerCount number of header views currently in a hardware layer
+     * @param layerBytes estimated memory of these layers
+     */
+    void onHeaderLayersChanged(int layerCount, long layerBytes);
+}
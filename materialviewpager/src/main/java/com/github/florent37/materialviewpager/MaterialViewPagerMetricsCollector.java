@@ -0,0 +1,217 @@
+package com.github.florent37.materialviewpager;
+
+/**
+ * MaterialViewPagerMetrics keeping counters and timing histograms, without allocation
+ * Read it from the main thread
+ */
+public class MaterialViewPagerMetricsCollector implements MaterialViewPagerMetrics {
+
+    private long scrollEventsReceived;
+    private long scrollEventsCoalesced;
+    private long headerScrolls;
+    private long siblingScrolls;
+    private long propertyWrites;
+
+    private int headerLayers;
+    private long headerLayerBytes;
+    private long peakHeaderLayerBytes;
+
+    private final Histogram headerScrollDurations = new Histogram();
+    private final Histogram imageLoadDurations = new Histogram();
+    private final Histogram imageFadeDurations = new Histogram();
+
+    @Override
+    public void onScrollEventReceived() {
+        ++scrollEventsReceived;
+    }
+
+    @Override
+    public void onScrollEventCoalesced() {
+        ++scrollEventsCoalesced;
+    }
+
+    @Override
+    public void onHeaderScrolled(long durationNanos, int siblingScrolls, long propertyWrites) {
+        ++headerScrolls;
+        this.siblingScrolls += siblingScrolls;
+        this.propertyWrites += propertyWrites;
+        headerScrollDurations.add(durationNanos);
+    }
+
+    @Override
+    public void onImageLoaded(long loadNanos) {
+        imageLoadDurations.add(loadNanos);
+    }
+
+    @Override
+    public void onImageFaded(long fadeNanos) {
+        imageFadeDurations.add(fadeNanos);
+    }
+
+    @Override
+    public void onHeaderLayersChanged(int layerCount, long layerBytes) {
+        headerLayers = layerCount;
+        headerLayerBytes = layerBytes;
+        if (layerBytes > peakHeaderLayerBytes)
+            peakHeaderLayerBytes = layerBytes;
+    }
+
+    public long getScrollEventsReceived() {
+        return scrollEventsReceived;
+    }
+
+    public long getScrollEventsCoalesced() {
+        return scrollEventsCoalesced;
+    }
+
+    public long getHeaderScrolls() {
+        return headerScrolls;
+    }
+
+    public long getSiblingScrolls() {
+        return siblingScrolls;
+    }
+
+    public long getPropertyWrites() {
+        return propertyWrites;
+    }
+
+    public int getHeaderLayers() {
+        return headerLayers;
+    }
+
+    public long getHeaderLayerBytes() {
+        return headerLayerBytes;
+    }
+
+    /**
+     * @return the maximum estimated layers memory since the last reset
+     */
+    public long getPeakHeaderLayerBytes() {
+        return peakHeaderLayerBytes;
+    }
+
+    public Histogram getHeaderScrollDurations() {
+        return headerScrollDurations;
+    }
+
+    public Histogram getImageLoadDurations() {
+        return imageLoadDurations;
+    }
+
+    public Histogram getImageFadeDurations() {
+        return imageFadeDurations;
+    }
+
+    public void reset() {
+        scrollEventsReceived = 0;
+        scrollEventsCoalesced = 0;
+        headerScrolls = 0;
+        siblingScrolls = 0;
+        propertyWrites = 0;
+        //the layers are still there, only the peak restarts from them
+        peakHeaderLayerBytes = headerLayerBytes;
+        headerScrollDurations.reset();
+        imageLoadDurations.reset();
+        imageFadeDurations.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "MaterialViewPagerMetrics{" +
+                "scrollEventsReceived=" + scrollEventsReceived +
+                ", scrollEventsCoalesced=" + scrollEventsCoalesced +
+                ", headerScrolls=" + headerScrolls +
+                ", siblingScrolls=" + siblingScrolls +
+                ", propertyWrites=" + propertyWrites +
+                ", headerLayers=" + headerLayers +
+                ", headerLayerBytes=" + headerLayerBytes +
+                ", peakHeaderLayerBytes=" + peakHeaderLayerBytes +
+                ", headerScrollDurations=" + headerScrollDurations +
+                ", imageLoadDurations=" + imageLoadDurations +
+                ", imageFadeDurations=" + imageFadeDurations +
+                '}';
+    }
+
+    /**
+     * Durations histogram, with power of 2 buckets in microseconds
+     * bucket 0 : < 1us, bucket 1 : < 2us, bucket 2 : < 4us ... the last bucket contains the longer durations
+     */
+    public static class Histogram {
+        public static final int BUCKETS = 32;
+
+        private final long[] counts = new long[BUCKETS];
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        public void add(long durationNanos) {
+            if (durationNanos < 0)
+                durationNanos = 0;
+
+            long micros = durationNanos / 1000;
+            int bucket = 64 - Long.numberOfLeadingZeros(micros);
+            if (bucket >= BUCKETS)
+                bucket = BUCKETS - 1;
+
+            ++counts[bucket];
+            ++count;
+            totalNanos += durationNanos;
+            if (durationNanos > maxNanos)
+                maxNanos = durationNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * @param percentile from 0 to 100
+         * @return the upper bound of the bucket containing this percentile, in nanoseconds
+         */
+        public long getPercentileNanos(float percentile) {
+            if (count == 0)
+                return 0;
+
+            long rank = (long) Math.ceil(count * percentile / 100f);
+            if (rank < 1)
+                rank = 1;
+
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+                seen += counts[bucket];
+                if (seen >= rank)
+                    return Math.min((1L << bucket) * 1000, maxNanos);
+            }
+            return maxNanos;
+        }
+
+        public void reset() {
+            for (int i = 0; i < BUCKETS; ++i) {
+                counts[i] = 0;
+            }
+            count = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + count +
+                    ", meanUs=" + getMeanNanos() / 1000 +
+                    ", p50Us=" + getPercentileNanos(50) / 1000 +
+                    ", p90Us=" + getPercentileNanos(90) / 1000 +
+                    ", p99Us=" + getPercentileNanos(99) / 1000 +
+                    ", maxUs=" + maxNanos / 1000 +
+                    '}';
+        }
+    }
+}
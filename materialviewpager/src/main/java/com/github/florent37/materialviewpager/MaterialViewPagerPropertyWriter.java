@@ -0,0 +1,184 @@
+package com.github.florent37.materialviewpager;
+
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+import com.nineoldandroids.view.ViewHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Write properties (translation, alpha, scale, elevation, background color) on the header views
+ * Remember the last value written on each view, and skip the write if the value did not change
+ * (ex : once the header is collapsed, each scroll writes the same values)
+ * Each useless write would invalidate the view, and re-record its display list
+ *
+ * Count the writes done & skipped
+ */
+public class MaterialViewPagerPropertyWriter {
+
+    //all created targets, to invalidate them
+    private final List<Target> targets = new ArrayList<>();
+
+    private long writeCount = 0;
+    private long skippedWriteCount = 0;
+
+    /**
+     * Create a Target which write properties on this view
+     *
+     * @param view the view, can be null (then writes are ignored)
+     */
+    public Target target(View view) {
+        Target target = new Target(view);
+        targets.add(target);
+        return target;
+    }
+
+    /**
+     * Forget all values written, the next writes will be applied on views
+     * Use it if views properties have been modified without this writer
+     */
+    public void invalidate() {
+        for (int i = 0, size = targets.size(); i < size; ++i) {
+            targets.get(i).invalidate();
+        }
+    }
+
+    /**
+     * @return the number of writes applied on views
+     */
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * @return the number of writes saved, because the value did not change
+     */
+    public long getSkippedWriteCount() {
+        return skippedWriteCount;
+    }
+
+    public void resetCounters() {
+        writeCount = 0;
+        skippedWriteCount = 0;
+    }
+
+    /**
+     * The properties of one view
+     * NaN means unknown value, so the next write is always applied
+     */
+    public class Target {
+        private final View view;
+
+        private float translationX;
+        private float translationY;
+        private float alpha;
+        private float scale;
+        private float elevation;
+        private int backgroundColor;
+        private boolean backgroundColorKnown;
+
+        private Target(View view) {
+            this.view = view;
+            invalidate();
+        }
+
+        public View getView() {
+            return view;
+        }
+
+        public void invalidate() {
+            translationX = Float.NaN;
+            translationY = Float.NaN;
+            alpha = Float.NaN;
+            scale = Float.NaN;
+            elevation = Float.NaN;
+            backgroundColorKnown = false;
+        }
+
+        /**
+         * Forget the translationY, to use when an animator moves the view
+         */
+        public void invalidateTranslationY() {
+            translationY = Float.NaN;
+        }
+
+        public void setTranslationX(float translationX) {
+            if (view == null)
+                return;
+            if (this.translationX == translationX) {
+                ++skippedWriteCount;
+                return;
+            }
+            this.translationX = translationX;
+            ++writeCount;
+            ViewHelper.setTranslationX(view, translationX);
+        }
+
+        public void setTranslationY(float translationY) {
+            if (view == null)
+                return;
+            if (this.translationY == translationY) {
+                ++skippedWriteCount;
+                return;
+            }
+            this.translationY = translationY;
+            ++writeCount;
+            ViewHelper.setTranslationY(view, translationY);
+        }
+
+        public void setAlpha(float alpha) {
+            if (view == null)
+                return;
+            if (this.alpha == alpha) {
+                ++skippedWriteCount;
+                return;
+            }
+            this.alpha = alpha;
+            ++writeCount;
+            ViewHelper.setAlpha(view, alpha);
+        }
+
+        /**
+         * modify scaleX & scaleY
+         */
+        public void setScale(float scale) {
+            if (view == null)
+                return;
+            if (this.scale == scale) {
+                ++skippedWriteCount;
+                return;
+            }
+            this.scale = scale;
+            ++writeCount;
+            ViewHelper.setScaleX(view, scale);
+            ViewHelper.setScaleY(view, scale);
+        }
+
+        public void setElevation(float elevation) {
+            if (view == null)
+                return;
+            if (this.elevation == elevation) {
+                ++skippedWriteCount;
+                return;
+            }
+            this.elevation = elevation;
+            ++writeCount;
+            ViewCompat.setElevation(view, elevation);
+        }
+
+        public void setBackgroundColor(int backgroundColor) {
+            if (view == null)
+                return;
+            if (backgroundColorKnown && this.backgroundColor == backgroundColor) {
+                ++skippedWriteCount;
+                return;
+            }
+            this.backgroundColor = backgroundColor;
+            backgroundColorKnown = true;
+            ++writeCount;
+            view.setBackgroundColor(backgroundColor);
+        }
+    }
+}
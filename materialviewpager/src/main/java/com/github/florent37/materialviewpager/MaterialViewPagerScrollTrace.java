@@ -0,0 +1,240 @@
+package com.github.florent37.materialviewpager;
+
+import android.os.Debug;
+import android.view.View;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Debug tool, records the scroll events received by MaterialViewPagerAnimator.onMaterialScrolled
+ * into a ring buffer (the oldest events are overwritten when full)
+ *
+ * Each event is (source slot, yOffset, timestamp), exported with writeTo into a binary format :
+ * int MAGIC, int VERSION, int count, then count * (long timestampNanos, int slot, float yOffset)
+ *
+ * A trace can be read back with readFrom, and replayed on a MaterialViewPagerAnimator to compare
+ * the cost of each scroll event on the same input
+ */
+public class MaterialViewPagerScrollTrace {
+
+    public static final int MAGIC = 0x4D565054; //MVPT
+    public static final int VERSION = 1;
+
+    //slot recorded when the source is not a registered scrollable (ex: restoreScroll)
+    public static final int NO_SLOT = -1;
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final long[] timestamps;
+    private final int[] slots;
+    private final float[] yOffsets;
+
+    //index of the oldest event
+    private int start = 0;
+    private int size = 0;
+
+    public MaterialViewPagerScrollTrace() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity max number of events kept
+     */
+    public MaterialViewPagerScrollTrace(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be > 0");
+        timestamps = new long[capacity];
+        slots = new int[capacity];
+        yOffsets = new float[capacity];
+    }
+
+    /**
+     * Add an event, overwrite the oldest one if full
+     *
+     * @param slot           the slot of the source into MaterialViewPagerScrollables, or NO_SLOT
+     * @param yOffset        the yOffset received
+     * @param timestampNanos System.nanoTime() when received
+     */
+    public void record(int slot, float yOffset, long timestampNanos) {
+        int capacity = timestamps.length;
+        int index;
+        if (size < capacity) {
+            index = (start + size) % capacity;
+            ++size;
+        } else {
+            index = start;
+            start = (start + 1) % capacity;
+        }
+        timestamps[index] = timestampNanos;
+        slots[index] = slot;
+        yOffsets[index] = yOffset;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    /**
+     * @param i from 0 (oldest event) to size() - 1 (newest event)
+     */
+    public long getTimestamp(int i) {
+        return timestamps[index(i)];
+    }
+
+    public int getSlot(int i) {
+        return slots[index(i)];
+    }
+
+    public float getYOffset(int i) {
+        return yOffsets[index(i)];
+    }
+
+    private int index(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+        return (start + i) % timestamps.length;
+    }
+
+    /**
+     * Export the events, from the oldest to the newest
+     * The stream is not closed
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(size);
+        for (int i = 0; i < size; ++i) {
+            int index = index(i);
+            out.writeLong(timestamps[index]);
+            out.writeInt(slots[index]);
+            out.writeFloat(yOffsets[index]);
+        }
+        out.flush();
+    }
+
+    /**
+     * Read a trace exported with writeTo
+     * The stream is not closed
+     */
+    public static MaterialViewPagerScrollTrace readFrom(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC)
+            throw new IOException("not a MaterialViewPager scroll trace");
+        int version = in.readInt();
+        if (version != VERSION)
+            throw new IOException("unsupported scroll trace version " + version);
+        int count = in.readInt();
+        if (count < 0)
+            throw new IOException("invalid scroll trace size " + count);
+
+        MaterialViewPagerScrollTrace trace = new MaterialViewPagerScrollTrace(Math.max(count, 1));
+        for (int i = 0; i < count; ++i) {
+            long timestamp = in.readLong();
+            int slot = in.readInt();
+            float yOffset = in.readFloat();
+            trace.record(slot, yOffset, timestamp);
+        }
+        return trace;
+    }
+
+    /**
+     * Feed the events to animator.onMaterialScrolled, as fast as possible, on the main thread
+     * The source of each event is the scrollable registered at its slot (null if no scrollable at this slot)
+     * The animator should be at the same scroll than when the trace was recorded (usually the top)
+     *
+     * @return the cost of the replay
+     */
+    public ReplayResult replay(MaterialViewPagerAnimator animator) {
+        MaterialViewPagerScrollables scrollables = animator.scrollables;
+        MaterialViewPagerPropertyWriter propertyWriter = animator.getPropertyWriter();
+
+        //do not record the replayed events
+        MaterialViewPagerScrollTrace recording = animator.getScrollTrace();
+        animator.setScrollTrace(null);
+
+        long writesBefore = propertyWriter.getWriteCount();
+        long skippedWritesBefore = propertyWriter.getSkippedWriteCount();
+
+        //allocation counting only works on debuggable apps, else counts stay at 0
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < size; ++i) {
+            int index = index(i);
+            int slot = slots[index];
+            View source = slot >= 0 && slot < scrollables.size() ? scrollables.get(slot) : null;
+            animator.onMaterialScrolled(source, yOffsets[index]);
+        }
+
+        long wallTimeNanos = System.nanoTime() - start;
+        Debug.stopAllocCounting();
+        int allocations = Debug.getThreadAllocCount();
+        long allocatedBytes = Debug.getThreadAllocSize();
+
+        animator.setScrollTrace(recording);
+
+        return new ReplayResult(size, wallTimeNanos, allocations, allocatedBytes,
+                propertyWriter.getWriteCount() - writesBefore,
+                propertyWriter.getSkippedWriteCount() - skippedWritesBefore);
+    }
+
+    /**
+     * The cost of a replay
+     */
+    public static class ReplayResult {
+        public final int events;
+        public final long wallTimeNanos;
+        public final int allocations;
+        public final long allocatedBytes;
+        public final long propertyWrites;
+        public final long skippedPropertyWrites;
+
+        public ReplayResult(int events, long wallTimeNanos, int allocations, long allocatedBytes, long propertyWrites, long skippedPropertyWrites) {
+            this.events = events;
+            this.wallTimeNanos = wallTimeNanos;
+            this.allocations = allocations;
+            this.allocatedBytes = allocatedBytes;
+            this.propertyWrites = propertyWrites;
+            this.skippedPropertyWrites = skippedPropertyWrites;
+        }
+
+        public long getWallTimeNanosPerEvent() {
+            return events == 0 ? 0 : wallTimeNanos / events;
+        }
+
+        public float getAllocationsPerEvent() {
+            return events == 0 ? 0 : allocations / (float) events;
+        }
+
+        public float getPropertyWritesPerEvent() {
+            return events == 0 ? 0 : propertyWrites / (float) events;
+        }
+
+        @Override
+        public String toString() {
+            return "ReplayResult{" +
+                    "events=" + events +
+                    ", wallTimeNanosPerEvent=" + getWallTimeNanosPerEvent() +
+                    ", allocationsPerEvent=" + getAllocationsPerEvent() +
+                    ", allocatedBytes=" + allocatedBytes +
+                    ", propertyWritesPerEvent=" + getPropertyWritesPerEvent() +
+                    ", skippedPropertyWrites=" + skippedPropertyWrites +
+                    '}';
+        }
+    }
+}
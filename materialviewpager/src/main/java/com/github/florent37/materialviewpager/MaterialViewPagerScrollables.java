@@ -0,0 +1,222 @@
+package com.github.florent37.materialviewpager;
+
+import android.view.View;
+
+/**
+ * Contains all scrollables registered to a MaterialViewPagerAnimator
+ *
+ * Each scrollable get a slot when registered, its offsets are saved into int arrays at this slot
+ * The scroll listeners keep their slot, so a scroll event only reads & writes arrays
+ * (no hash lookup, no Integer boxing)
+ *
+ * A slot never moves while its scrollable is registered
+ * When a scrollable is unregistered, its slot is emptied (get returns null) and reused by the next registered scrollable
+ */
+public class MaterialViewPagerScrollables {
+
+    //offset value when nothing has been applied yet on a scrollable
+    public static final int NO_OFFSET = Integer.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private View[] scrollables = new View[INITIAL_CAPACITY];
+
+    //last yOffset reported by the scrollable listener
+    private int[] reportedYOffsets = new int[INITIAL_CAPACITY];
+
+    //last yOffset applied on the scrollable by dispatchScrollOffset
+    private int[] appliedYOffsets = new int[INITIAL_CAPACITY];
+
+    //yOffset to apply when the scrollable comes next to the current page (if attr viewpager_lazyScrollSync = true)
+    private int[] pendingYOffsets = new int[INITIAL_CAPACITY];
+
+    //the ViewPager page containing the scrollable, resolved on first use
+    private View[] pages = new View[INITIAL_CAPACITY];
+
+    //the scroll listener set by MaterialViewPagerAnimator on the scrollable, to remove it when unregistered
+    private Object[] listeners = new Object[INITIAL_CAPACITY];
+
+    //emptied slots, reused before adding new ones
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeSlotsCount = 0;
+
+    private int size = 0;
+
+    /**
+     * Add a scrollable, or retrieve its slot if already registered
+     *
+     * @param scrollable the scrollable
+     * @param yOffset    its current yOffset
+     * @return the slot of the scrollable
+     */
+    public int register(View scrollable, int yOffset) {
+        int slot = indexOf(scrollable);
+        if (slot != -1)
+            return slot;
+
+        if (freeSlotsCount > 0) {
+            slot = freeSlots[--freeSlotsCount];
+        } else {
+            if (size == scrollables.length)
+                grow();
+            slot = size++;
+        }
+
+        scrollables[slot] = scrollable;
+        reportedYOffsets[slot] = yOffset;
+        appliedYOffsets[slot] = NO_OFFSET;
+        pendingYOffsets[slot] = NO_OFFSET;
+        pages[slot] = null;
+        listeners[slot] = null;
+        return slot;
+    }
+
+    /**
+     * Empty the slot of this scrollable, it will be reused by the next registered scrollable
+     *
+     * @return the emptied slot, -1 if not registered
+     */
+    public int unregister(Object scrollable) {
+        int slot = indexOf(scrollable);
+        if (slot != -1) {
+            scrollables[slot] = null;
+            pendingYOffsets[slot] = NO_OFFSET;
+            pages[slot] = null;
+            listeners[slot] = null;
+            freeSlots[freeSlotsCount++] = slot;
+        }
+        return slot;
+    }
+
+    /**
+     * @return the slot of this scrollable (compared by identity), -1 if not registered
+     */
+    public int indexOf(Object scrollable) {
+        if (scrollable == null)
+            return -1;
+        for (int i = 0; i < size; ++i) {
+            if (scrollables[i] == scrollable)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of slots, iterate from 0 to size() to retrieve all scrollables (null for emptied slots)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of registered scrollables
+     */
+    public int count() {
+        return size - freeSlotsCount;
+    }
+
+    public boolean isEmpty() {
+        return count() == 0;
+    }
+
+    public View get(int slot) {
+        return scrollables[slot];
+    }
+
+    public int getReportedYOffset(int slot) {
+        return reportedYOffsets[slot];
+    }
+
+    public void setReportedYOffset(int slot, int yOffset) {
+        reportedYOffsets[slot] = yOffset;
+    }
+
+    public int getAppliedYOffset(int slot) {
+        return appliedYOffsets[slot];
+    }
+
+    public void setAppliedYOffset(int slot, int yOffset) {
+        appliedYOffsets[slot] = yOffset;
+    }
+
+    public int getPendingYOffset(int slot) {
+        return pendingYOffsets[slot];
+    }
+
+    public void setPendingYOffset(int slot, int yOffset) {
+        pendingYOffsets[slot] = yOffset;
+    }
+
+    /**
+     * Called by the scroll listener of the scrollable, with the scroll delta it received
+     *
+     * @return the new reported yOffset
+     */
+    public int addReportedYOffset(int slot, int dy) {
+        return reportedYOffsets[slot] += dy;
+    }
+
+    /**
+     * @return true if the scrollable has to be scrolled to reach yOffset
+     */
+    public boolean needsSync(int slot, int yOffset) {
+        return appliedYOffsets[slot] != yOffset || reportedYOffsets[slot] != yOffset;
+    }
+
+    /**
+     * Save the yOffset applied on the scrollable by dispatchScrollOffset, its pending yOffset is dropped
+     */
+    public void setSyncedYOffset(int slot, int yOffset) {
+        appliedYOffsets[slot] = yOffset;
+        reportedYOffsets[slot] = yOffset;
+        pendingYOffsets[slot] = NO_OFFSET;
+    }
+
+    public View getPage(int slot) {
+        return pages[slot];
+    }
+
+    public void setPage(int slot, View page) {
+        pages[slot] = page;
+    }
+
+    public Object getListener(int slot) {
+        return listeners[slot];
+    }
+
+    public void setListener(int slot, Object listener) {
+        listeners[slot] = listener;
+    }
+
+    private void grow() {
+        int capacity = scrollables.length * 2;
+
+        View[] newScrollables = new View[capacity];
+        System.arraycopy(scrollables, 0, newScrollables, 0, size);
+        scrollables = newScrollables;
+
+        int[] newReportedYOffsets = new int[capacity];
+        System.arraycopy(reportedYOffsets, 0, newReportedYOffsets, 0, size);
+        reportedYOffsets = newReportedYOffsets;
+
+        int[] newAppliedYOffsets = new int[capacity];
+        System.arraycopy(appliedYOffsets, 0, newAppliedYOffsets, 0, size);
+        appliedYOffsets = newAppliedYOffsets;
+
+        int[] newPendingYOffsets = new int[capacity];
+        System.arraycopy(pendingYOffsets, 0, newPendingYOffsets, 0, size);
+        pendingYOffsets = newPendingYOffsets;
+
+        View[] newPages = new View[capacity];
+        System.arraycopy(pages, 0, newPages, 0, size);
+        pages = newPages;
+
+        Object[] newListeners = new Object[capacity];
+        System.arraycopy(listeners, 0, newListeners, 0, size);
+        listeners = newListeners;
+
+        int[] newFreeSlots = new int[capacity];
+        System.arraycopy(freeSlots, 0, newFreeSlots, 0, freeSlotsCount);
+        freeSlots = newFreeSlots;
+    }
+}
@@ -42,6 +42,15 @@ public class MaterialViewPagerSettings implements Parcelable {
     protected boolean toolbarTransparent;
     protected boolean animatedHeaderImage;
     protected boolean disableToolbar;
+    protected boolean coalesceScrollEvents;
+    protected boolean lazyScrollSync;
+    protected boolean deferHeaderInflation;
+    protected boolean compositeHeaderColor;
+    protected boolean manageHeaderLayers;
+    protected int headerPrefetchWindow = 0;
+    protected int headerPrefetchBudget = 2;
+    protected boolean reuseHeaderBitmaps;
+    protected boolean headerBitmapRgb565;
 
     /**
      * Retrieve attributes from the MaterialViewPager
@@ -105,6 +114,29 @@ public class MaterialViewPagerSettings implements Parcelable {
             {
                 disableToolbar = styledAttrs.getBoolean(R.styleable.MaterialViewPager_viewpager_disableToolbar, false);
             }
+            {
+                coalesceScrollEvents = styledAttrs.getBoolean(R.styleable.MaterialViewPager_viewpager_coalesceScrollEvents, false);
+            }
+            {
+                lazyScrollSync = styledAttrs.getBoolean(R.styleable.MaterialViewPager_viewpager_lazyScrollSync, false);
+            }
+            {
+                deferHeaderInflation = styledAttrs.getBoolean(R.styleable.MaterialViewPager_viewpager_deferHeaderInflation, false);
+            }
+            {
+                compositeHeaderColor = styledAttrs.getBoolean(R.styleable.MaterialViewPager_viewpager_compositeHeaderColor, false);
+            }
+            {
+                manageHeaderLayers = styledAttrs.getBoolean(R.styleable.MaterialViewPager_viewpager_manageHeaderLayers, false);
+            }
+            {
+                headerPrefetchWindow = styledAttrs.getInt(R.styleable.MaterialViewPager_viewpager_headerPrefetchWindow, 0);
+                headerPrefetchBudget = styledAttrs.getInt(R.styleable.MaterialViewPager_viewpager_headerPrefetchBudget, 2);
+            }
+            {
+                reuseHeaderBitmaps = styledAttrs.getBoolean(R.styleable.MaterialViewPager_viewpager_reuseHeaderBitmaps, false);
+                headerBitmapRgb565 = styledAttrs.getBoolean(R.styleable.MaterialViewPager_viewpager_headerBitmapRgb565, false);
+            }
             styledAttrs.recycle();
         } catch (Exception e) {
             e.printStackTrace();
@@ -135,6 +167,19 @@ public class MaterialViewPagerSettings implements Parcelable {
         dest.writeByte(hideToolbarAndTitle ? (byte) 1 : (byte) 0);
         dest.writeByte(hideLogoWithFade ? (byte) 1 : (byte) 0);
         dest.writeByte(enableToolbarElevation ? (byte) 1 : (byte) 0);
+        dest.writeByte(coalesceScrollEvents ? (byte) 1 : (byte) 0);
+        dest.writeByte(lazyScrollSync ? (byte) 1 : (byte) 0);
+        dest.writeByte(displayToolbarWhenSwipe ? (byte) 1 : (byte) 0);
+        dest.writeByte(toolbarTransparent ? (byte) 1 : (byte) 0);
+        dest.writeByte(animatedHeaderImage ? (byte) 1 : (byte) 0);
+        dest.writeByte(disableToolbar ? (byte) 1 : (byte) 0);
+        dest.writeByte(deferHeaderInflation ? (byte) 1 : (byte) 0);
+        dest.writeByte(compositeHeaderColor ? (byte) 1 : (byte) 0);
+        dest.writeByte(manageHeaderLayers ? (byte) 1 : (byte) 0);
+        dest.writeInt(this.headerPrefetchWindow);
+        dest.writeInt(this.headerPrefetchBudget);
+        dest.writeByte(reuseHeaderBitmaps ? (byte) 1 : (byte) 0);
+        dest.writeByte(headerBitmapRgb565 ? (byte) 1 : (byte) 0);
     }
 
     public MaterialViewPagerSettings() {
@@ -156,6 +201,19 @@ public class MaterialViewPagerSettings implements Parcelable {
         this.hideToolbarAndTitle = in.readByte() != 0;
         this.hideLogoWithFade = in.readByte() != 0;
         this.enableToolbarElevation = in.readByte() != 0;
+        this.coalesceScrollEvents = in.readByte() != 0;
+        this.lazyScrollSync = in.readByte() != 0;
+        this.displayToolbarWhenSwipe = in.readByte() != 0;
+        this.toolbarTransparent = in.readByte() != 0;
+        this.animatedHeaderImage = in.readByte() != 0;
+        this.disableToolbar = in.readByte() != 0;
+        this.deferHeaderInflation = in.readByte() != 0;
+        this.compositeHeaderColor = in.readByte() != 0;
+        this.manageHeaderLayers = in.readByte() != 0;
+        this.headerPrefetchWindow = in.readInt();
+        this.headerPrefetchBudget = in.readInt();
+        this.reuseHeaderBitmaps = in.readByte() != 0;
+        this.headerBitmapRgb565 = in.readByte() != 0;
     }
 
     public static final Parcelable.Creator<MaterialViewPagerSettings> CREATOR = new Parcelable.Creator<MaterialViewPagerSettings>() {
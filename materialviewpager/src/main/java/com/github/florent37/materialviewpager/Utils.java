@@ -1,8 +1,10 @@
 package com.github.florent37.materialviewpager;
 
+import android.annotation.TargetApi;
 import android.content.Context;
-import android.graphics.Color;
 import android.graphics.Rect;
+import android.os.Build;
+import android.os.Trace;
 import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
@@ -39,18 +41,11 @@ public class Utils {
      * Create a color from [$color].RGB and then add an alpha with 255*[$percent]
      */
     public static int colorWithAlpha(int color, float percent) {
-        int r = Color.red(color);
-        int g = Color.green(color);
-        int b = Color.blue(color);
-        int alpha = Math.round(percent * 255);
-
-        return Color.argb(alpha, r, g, b);
+        return HeaderScrollModel.colorWithAlpha(color, percent);
     }
 
     public static float minMax(float min, float value, float max) {
-        value = Math.min(value, max);
-        value = Math.max(min, value);
-        return value;
+        return HeaderScrollModel.minMax(min, value, max);
     }
 
 
@@ -62,10 +57,21 @@ public class Utils {
      */
     public static void setScale(float scale, View... views) {
         for (View view : views) {
-            if (view != null) {
-                ViewHelper.setScaleX(view, scale);
-                ViewHelper.setScaleY(view, scale);
-            }
+            setScale(scale, view);
+        }
+    }
+
+    /**
+     * modify the scale of one view
+     * without varargs, so no array is allocated when called during scroll
+     *
+     * @param scale the new scale
+     * @param view
+     */
+    public static void setScale(float scale, View view) {
+        if (view != null) {
+            ViewHelper.setScaleX(view, scale);
+            ViewHelper.setScaleY(view, scale);
         }
     }
 
@@ -77,11 +83,22 @@ public class Utils {
      */
     public static void setElevation(float elevation, View... views) {
         for (View view : views) {
-            if (view != null)
-                ViewCompat.setElevation(view, elevation);
+            setElevation(elevation, view);
         }
     }
 
+    /**
+     * modify the elevation of one view
+     * without varargs, so no array is allocated when called during scroll
+     *
+     * @param elevation the new elevation
+     * @param view
+     */
+    public static void setElevation(float elevation, View view) {
+        if (view != null)
+            ViewCompat.setElevation(view, elevation);
+    }
+
     /**
      * modify the backgroundcolor of multiples views
      *
@@ -90,11 +107,22 @@ public class Utils {
      */
     public static void setBackgroundColor(int color, View... views) {
         for (View view : views) {
-            if (view != null)
-                view.setBackgroundColor(color);
+            setBackgroundColor(color, view);
         }
     }
 
+    /**
+     * modify the backgroundcolor of one view
+     * without varargs, so no array is allocated when called during scroll
+     *
+     * @param color the new backgroundcolor
+     * @param view
+     */
+    public static void setBackgroundColor(int color, View view) {
+        if (view != null)
+            view.setBackgroundColor(color);
+    }
+
     public static boolean canScroll(View view) {
         if(view instanceof ScrollView) {
             ScrollView scrollView = (ScrollView)view;
@@ -134,6 +162,22 @@ public class Utils {
         }
     }
 
+    public static View getTheVisibileView(MaterialViewPagerScrollables scrollables) {
+        Rect scrollBounds = new Rect();
+
+        int size = scrollables.size();
+        for (int slot = 0; slot < size; ++slot) {
+            View view = scrollables.get(slot);
+            if (view != null) {
+                view.getHitRect(scrollBounds);
+                if (view.getLocalVisibleRect(scrollBounds)) {
+                    return view;
+                }
+            }
+        }
+        return null;
+    }
+
     public static View getTheVisibileView(List<View> viewList) {
         Rect scrollBounds = new Rect();
 
@@ -149,4 +193,20 @@ public class Utils {
         }
         return null;
     }
+
+    /**
+     * Begin a systrace section, only from JELLY_BEAN_MR2
+     * Must be ended by endTraceSection on the same thread
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public static void beginTraceSection(String sectionName) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2)
+            Trace.beginSection(sectionName);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    public static void endTraceSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2)
+            Trace.endSection();
+    }
 }
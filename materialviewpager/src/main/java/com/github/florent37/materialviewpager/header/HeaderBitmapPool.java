@@ -0,0 +1,316 @@
+package com.github.florent37.materialviewpager.header;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.os.Build;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Decode the header images at the header size, into reused bitmaps (BitmapFactory.Options.inBitmap)
+ * Set it with MaterialViewPagerImageHelper.setBitmapPool (or attr viewpager_reuseHeaderBitmaps = true),
+ * a HeaderImageLoader decoding itself can then use decode, ex: PicassoHeaderImageLoader
+ *
+ * The header gives back the bitmaps it doesn't display anymore (end of the crossfade), so swapping header images
+ * stops allocating once the pool is warm
+ * Only the bitmaps created by this pool are reused
+ *
+ * decode can be called from any thread, the stream is read and decoded without holding the pool lock,
+ * so release (main thread) never waits for a download
+ */
+public class HeaderBitmapPool {
+
+    //2 displayed during a crossfade, 1 decoding
+    public static final int DEFAULT_MAX_BITMAPS = 3;
+
+    private final int maxBitmaps;
+    private boolean preferRgb565 = false;
+
+    //size used while the header image is not measured
+    private int defaultWidth = 0;
+    private int defaultHeight = 0;
+
+    //bitmaps not displayed, ready to be reused
+    private final List<Bitmap> free = new ArrayList<>();
+    //all bitmaps created by this pool, forgotten once not displayed anymore
+    private final Set<Bitmap> owned = Collections.newSetFromMap(new WeakHashMap<Bitmap, Boolean>());
+
+    //one decode at a time, guards buffer, paint & matrix
+    //the pool lock (this) only guards the free & owned bitmaps, the counters and the default size
+    private final Object decodeLock = new Object();
+
+    //encoded image, read once to decode the bounds then the pixels
+    private byte[] buffer = new byte[64 * 1024];
+
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Matrix matrix = new Matrix();
+
+    private long reusedCount;
+    private long allocatedCount;
+
+    public HeaderBitmapPool() {
+        this(DEFAULT_MAX_BITMAPS);
+    }
+
+    /**
+     * @param maxBitmaps number of bitmaps kept for reuse
+     */
+    public HeaderBitmapPool(int maxBitmaps) {
+        this.maxBitmaps = maxBitmaps;
+    }
+
+    /**
+     * @param preferRgb565 decode the opaque images (jpeg) in RGB_565, half the memory of ARGB_8888
+     */
+    public void setPreferRgb565(boolean preferRgb565) {
+        this.preferRgb565 = preferRgb565;
+    }
+
+    public boolean isPreferRgb565() {
+        return preferRgb565;
+    }
+
+    /**
+     * @param width  the header width used when decode is called before the header is measured
+     * @param height the header height (headerHeight + headerAdditionalHeight) used when decode is called before the header is measured
+     */
+    public synchronized void setDefaultSize(int width, int height) {
+        this.defaultWidth = width;
+        this.defaultHeight = height;
+    }
+
+    /**
+     * Decode the image center cropped to width x height, sampled while decoding
+     *
+     * @param in     the encoded image, not closed
+     * @param width  the header width, 0 for the default size (or the image size if none)
+     * @param height the header height, 0 for the default size (or the image size if none)
+     * @return a bitmap of this pool, give it back with release once not displayed
+     */
+    public Bitmap decode(InputStream in, int width, int height) throws IOException {
+        synchronized (decodeLock) {
+            return decodeLocked(in, width, height);
+        }
+    }
+
+    //called with decodeLock held, not the pool lock
+    private Bitmap decodeLocked(InputStream in, int width, int height) throws IOException {
+        int length = read(in);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(buffer, 0, length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0)
+            throw new IOException("cannot decode the header image");
+
+        if (width <= 0 || height <= 0) {
+            synchronized (this) {
+                width = defaultWidth;
+                height = defaultHeight;
+            }
+        }
+        if (width <= 0 || height <= 0) {
+            width = options.outWidth;
+            height = options.outHeight;
+        }
+
+        Bitmap.Config config = preferRgb565 && "image/jpeg".equals(options.outMimeType) ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+
+        //largest power of 2 keeping the image bigger than the header
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width && options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        int sampledWidth = (options.outWidth + sampleSize - 1) / sampleSize;
+        int sampledHeight = (options.outHeight + sampleSize - 1) / sampleSize;
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = config;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            synchronized (this) {
+                setInBitmap(options, findReusable(sampledWidth, sampledHeight, config, sampleSize));
+            }
+        }
+
+        Bitmap decoded = decodeReusing(length, options);
+        if (decoded.getWidth() == width && decoded.getHeight() == height)
+            return decoded;
+
+        //center crop into a header sized bitmap, the decoded one goes back to the pool
+        Bitmap cropped = null;
+        boolean drawn = false;
+        try {
+            cropped = obtain(width, height, config);
+            float scale = Math.max((float) width / decoded.getWidth(), (float) height / decoded.getHeight());
+            matrix.setScale(scale, scale);
+            matrix.postTranslate((width - decoded.getWidth() * scale) / 2f, (height - decoded.getHeight() * scale) / 2f);
+            new Canvas(cropped).drawBitmap(decoded, matrix, paint);
+            drawn = true;
+        } finally {
+            release(decoded);
+            //ex: out of memory, the cropped bitmap is not returned
+            if (!drawn)
+                release(cropped);
+        }
+        return cropped;
+    }
+
+    private int read(InputStream in) throws IOException {
+        int length = 0;
+        int count;
+        while ((count = in.read(buffer, length, buffer.length - length)) != -1) {
+            length += count;
+            if (length == buffer.length) {
+                byte[] bigger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, bigger, 0, length);
+                buffer = bigger;
+            }
+        }
+        return length;
+    }
+
+    private Bitmap decodeReusing(int length, BitmapFactory.Options options) throws IOException {
+        Bitmap reused = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB ? getInBitmap(options) : null;
+        Bitmap decoded = null;
+        try {
+            try {
+                decoded = BitmapFactory.decodeByteArray(buffer, 0, length, options);
+            } catch (IllegalArgumentException e) {
+                //the reused bitmap did not fit, decode into a new one
+                if (reused == null)
+                    throw e;
+                setInBitmap(options, null);
+                decoded = BitmapFactory.decodeByteArray(buffer, 0, length, options);
+            }
+            if (decoded == null)
+                throw new IOException("cannot decode the header image");
+        } finally {
+            //not decoded into (didn't fit, or the decode failed), back to the free ones
+            if (reused != null && decoded != reused)
+                release(reused);
+        }
+
+        synchronized (this) {
+            if (decoded == reused) {
+                ++reusedCount;
+            } else {
+                ++allocatedCount;
+                owned.add(decoded);
+            }
+        }
+        return decoded;
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static void setInBitmap(BitmapFactory.Options options, Bitmap inBitmap) {
+        //the decoded bitmap will be reused
+        options.inMutable = true;
+        options.inBitmap = inBitmap;
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static Bitmap getInBitmap(BitmapFactory.Options options) {
+        return options.inBitmap;
+    }
+
+    /**
+     * @return a free bitmap able to receive this decode, removed from the free ones, or null
+     */
+    private Bitmap findReusable(int width, int height, Bitmap.Config config, int sampleSize) {
+        for (int i = 0, size = free.size(); i < size; ++i) {
+            Bitmap bitmap = free.get(i);
+            if (canReuse(bitmap, width, height, config, sampleSize))
+                return free.remove(i);
+        }
+        return null;
+    }
+
+    private static boolean canReuse(Bitmap bitmap, int width, int height, Bitmap.Config config, int sampleSize) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+            return getAllocationByteCount(bitmap) >= width * height * bytesPerPixel(config);
+        //before KITKAT, only the same size, without sampling
+        return sampleSize == 1 && bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config;
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static int getAllocationByteCount(Bitmap bitmap) {
+        return bitmap.getAllocationByteCount();
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        return config == Bitmap.Config.RGB_565 ? 2 : 4;
+    }
+
+    /**
+     * @return a free bitmap of exactly this size & config, or a new one
+     */
+    private synchronized Bitmap obtain(int width, int height, Bitmap.Config config) {
+        for (int i = 0, size = free.size(); i < size; ++i) {
+            Bitmap bitmap = free.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config) {
+                ++reusedCount;
+                return free.remove(i);
+            }
+        }
+        ++allocatedCount;
+        Bitmap bitmap = Bitmap.createBitmap(width, height, config);
+        owned.add(bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Give back a bitmap not displayed anymore, ignored if it was not created by this pool
+     */
+    public synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !owned.contains(bitmap) || free.contains(bitmap))
+            return;
+
+        free.add(bitmap);
+        //forget the oldest ones
+        while (free.size() > maxBitmaps) {
+            owned.remove(free.remove(0));
+        }
+    }
+
+    /**
+     * @return true if this bitmap was created by this pool
+     */
+    public synchronized boolean owns(Bitmap bitmap) {
+        return owned.contains(bitmap);
+    }
+
+    /**
+     * Forget the free bitmaps, ex: on low memory
+     */
+    public synchronized void clear() {
+        for (int i = 0, size = free.size(); i < size; ++i) {
+            owned.remove(free.get(i));
+        }
+        free.clear();
+    }
+
+    /**
+     * @return number of bitmaps decoded / cropped into a reused bitmap
+     */
+    public synchronized long getReusedCount() {
+        return reusedCount;
+    }
+
+    /**
+     * @return number of bitmaps allocated
+     */
+    public synchronized long getAllocatedCount() {
+        return allocatedCount;
+    }
+}
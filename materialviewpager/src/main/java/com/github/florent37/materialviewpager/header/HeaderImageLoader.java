@@ -0,0 +1,39 @@
+package com.github.florent37.materialviewpager.header;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+/**
+ * Loads the header images given to MaterialViewPager.setImageUrl / HeaderDesign.fromColorAndUrl
+ * Set it with MaterialViewPagerImageHelper.setImageLoader, to share the image pipeline (caches, decoders) of the app
+ *
+ * If none is set, the PicassoHeaderImageLoader of the materialviewpagerpicasso module is used when available
+ */
+public interface HeaderImageLoader {
+
+    /**
+     * Load the image, then notify the target on the main thread
+     *
+     * @param width  the header width, 0 if not measured yet
+     * @param height the header height, 0 if not measured yet
+     * @param target receive the image, until cancelled
+     */
+    void load(Context context, String url, int width, int height, Target target);
+
+    /**
+     * Cancel the load delivering to this target, the target must not be notified after
+     * Called when a newer image replaces it (ex: fast swipe), drop its decode before it reaches the main thread if possible
+     */
+    void cancel(Context context, Target target);
+
+    /**
+     * Warm the cache for a future load of this url at this size, without notification
+     */
+    void prefetch(Context context, String url, int width, int height);
+
+    interface Target {
+        void onImageLoaded(Bitmap bitmap);
+
+        void onImageFailed();
+    }
+}
@@ -1,97 +1,328 @@
 package com.github.florent37.materialviewpager.header;
 
+import android.graphics.Bitmap;
+import android.graphics.Color;
 import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
-import android.view.animation.AccelerateInterpolator;
+import android.graphics.drawable.LayerDrawable;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.animation.DecelerateInterpolator;
 import android.widget.ImageView;
 
 import com.github.florent37.materialviewpager.MaterialViewPager;
+import com.github.florent37.materialviewpager.MaterialViewPagerAnimator;
+import com.github.florent37.materialviewpager.MaterialViewPagerHelper;
+import com.github.florent37.materialviewpager.MaterialViewPagerJankMonitor;
+import com.github.florent37.materialviewpager.MaterialViewPagerMetrics;
+import com.github.florent37.materialviewpager.R;
+import com.github.florent37.materialviewpager.Utils;
 import com.nineoldandroids.animation.Animator;
 import com.nineoldandroids.animation.AnimatorListenerAdapter;
-import com.nineoldandroids.animation.ObjectAnimator;
-import com.nineoldandroids.view.ViewHelper;
-import com.squareup.picasso.Callback;
-import com.squareup.picasso.Picasso;
+import com.nineoldandroids.animation.ValueAnimator;
 
 /**
  * Created by florentchampigny on 12/06/15.
  */
 public class MaterialViewPagerImageHelper {
 
+    private static final String TAG = "MaterialViewPager";
+
+    //used if no HeaderImageLoader is set, in the materialviewpagerpicasso module
+    private static final String PICASSO_IMAGE_LOADER = "com.github.florent37.materialviewpager.picasso.PicassoHeaderImageLoader";
+
     private static MaterialViewPager.OnImageLoadListener imageLoadListener;
 
+    private static HeaderImageLoader imageLoader;
+    private static boolean defaultImageLoaderResolved = false;
+
+    //generation of the last ImageRequest created
+    private static int requestGeneration = 0;
+
+    //receive the bitmaps not displayed anymore, null if not reused
+    private static HeaderBitmapPool bitmapPool;
+
     /**
-     * change the image with a fade
+     * change the image with a crossfade
+     * the load starts now (once laid out for the first image), the current image stays displayed until the new one is ready, then fades out under it
+     * the image is loaded by the HeaderImageLoader, nothing is done if there is none
      * @param urlImage
      * @param fadeDuration
-     *
-     * TODO : remove Picasso
      */
     public static void setImageUrl(final ImageView imageView, final String urlImage, final int fadeDuration) {
-        final float alpha = ViewHelper.getAlpha(imageView);
-        final ImageView viewToAnimate = imageView;
+        if (getImageLoader() == null)
+            return;
 
-        //fade to alpha=0
-        final ObjectAnimator fadeOut = ObjectAnimator.ofFloat(viewToAnimate, "alpha", 0).setDuration(fadeDuration);
-        fadeOut.setInterpolator(new DecelerateInterpolator());
-        fadeOut.addListener(new AnimatorListenerAdapter() {
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                super.onAnimationEnd(animation);
+        //already loading this url (onPageScrolled selects the same page again and again)
+        ImageRequest pending = getPendingRequest(imageView);
+        if (pending != null && pending.url.equals(urlImage)) {
+            pending.fadeDuration = fadeDuration;
+            return;
+        }
 
-                //change the image when alpha=0
-                Picasso.with(imageView.getContext()).load(urlImage)
-                        .centerCrop().fit().into(viewToAnimate, new Callback() {
-                    @Override
-                    public void onSuccess() {
-
-                        //then fade to alpha=1
-                        final ObjectAnimator fadeIn = ObjectAnimator.ofFloat(viewToAnimate, "alpha", alpha).setDuration(fadeDuration);
-                        fadeIn.setInterpolator(new AccelerateInterpolator());
-                        fadeIn.start();
-                        if(imageLoadListener!=null){
-                            imageLoadListener.OnImageLoad(imageView,((BitmapDrawable)imageView.getDrawable()).getBitmap());
-                        }
-                    }
-
-                    @Override
-                    public void onError() {
-
-                    }
-                });
-            }
-        });
-        fadeOut.start();
+        Utils.beginTraceSection("MaterialViewPager:setImageUrl");
+        ImageRequest request = new ImageRequest(imageView, urlImage, fadeDuration, ++requestGeneration);
+        cancelPendingRequest(imageView);
+        imageView.setTag(R.id.materialviewpager_imageRequest, request);
+        if (imageView.getWidth() == 0 || imageView.getHeight() == 0) {
+            //not laid out yet (first image), a load now would decode the full size image
+            request.loadWhenLaidOut();
+        } else {
+            request.load();
+        }
+        Utils.endTraceSection();
     }
 
     /**
-     * change the image with a fade
+     * change the image with a crossfade
      * @param drawable
      * @param fadeDuration
      */
     public static void setImageDrawable(final ImageView imageView, final Drawable drawable, final int fadeDuration) {
-        final float alpha = ViewHelper.getAlpha(imageView);
-        final ImageView viewToAnimate = imageView;
+        //this drawable replaces the image being loaded
+        cancelPendingRequest(imageView);
+        crossfade(imageView, drawable, fadeDuration, System.nanoTime());
+    }
+
+    private static ImageRequest getPendingRequest(ImageView imageView) {
+        Object request = imageView.getTag(R.id.materialviewpager_imageRequest);
+        return request instanceof ImageRequest ? (ImageRequest) request : null;
+    }
+
+    /**
+     * Cancel the url load of this header image, its image will not be displayed
+     */
+    public static void cancelPendingRequest(ImageView imageView) {
+        ImageRequest pending = getPendingRequest(imageView);
+        if (pending != null) {
+            imageView.setTag(R.id.materialviewpager_imageRequest, null);
+            pending.cancelLoadWhenLaidOut();
+            HeaderImageLoader imageLoader = getImageLoader();
+            if (imageLoader != null)
+                imageLoader.cancel(imageView.getContext(), pending);
+        }
+    }
+
+    /**
+     * A load of a header image url, only the latest request of an ImageView (its generation) is displayed
+     * The older ones are cancelled, and dropped if their loader still notifies them
+     * Requested before the ImageView is laid out, it waits for the layout to load at the header size
+     */
+    private static class ImageRequest implements HeaderImageLoader.Target, ViewTreeObserver.OnPreDrawListener {
+        final ImageView imageView;
+        final String url;
+        final int generation;
+        final long requestTime = System.nanoTime();
+        int fadeDuration;
+
+        //waiting for the layout of the ImageView
+        private boolean waitingLayout = false;
+
+        ImageRequest(ImageView imageView, String url, int fadeDuration, int generation) {
+            this.imageView = imageView;
+            this.url = url;
+            this.fadeDuration = fadeDuration;
+            this.generation = generation;
+        }
+
+        private boolean isLatest() {
+            ImageRequest latest = getPendingRequest(imageView);
+            return latest != null && latest.generation == generation;
+        }
+
+        void load() {
+            HeaderImageLoader imageLoader = getImageLoader();
+            if (imageLoader != null)
+                imageLoader.load(imageView.getContext(), url, imageView.getWidth(), imageView.getHeight(), this);
+        }
+
+        void loadWhenLaidOut() {
+            waitingLayout = true;
+            imageView.getViewTreeObserver().addOnPreDrawListener(this);
+        }
+
+        void cancelLoadWhenLaidOut() {
+            if (waitingLayout) {
+                waitingLayout = false;
+                ViewTreeObserver viewTreeObserver = imageView.getViewTreeObserver();
+                if (viewTreeObserver.isAlive())
+                    viewTreeObserver.removeOnPreDrawListener(this);
+            }
+        }
+
+        //laid out, the draw is not cancelled
+        @Override
+        public boolean onPreDraw() {
+            boolean waiting = waitingLayout;
+            cancelLoadWhenLaidOut();
+            if (waiting && isLatest())
+                load();
+            return true;
+        }
+
+        @Override
+        public void onImageLoaded(Bitmap bitmap) {
+            //superseded by a newer request
+            if (!isLatest()) {
+                if (bitmapPool != null)
+                    bitmapPool.release(bitmap);
+                return;
+            }
+            imageView.setTag(R.id.materialviewpager_imageRequest, null);
+
+            Utils.beginTraceSection("MaterialViewPager:onImageLoaded");
+            MaterialViewPagerMetrics metrics = getMetrics(imageView);
+            if (metrics != null)
+                metrics.onImageLoaded(System.nanoTime() - requestTime);
+
+            crossfade(imageView, new BitmapDrawable(imageView.getResources(), bitmap), fadeDuration, requestTime);
+
+            if(imageLoadListener!=null){
+                imageLoadListener.OnImageLoad(imageView, bitmap);
+            }
+            Utils.endTraceSection();
+        }
+
+        @Override
+        public void onImageFailed() {
+            if (isLatest())
+                imageView.setTag(R.id.materialviewpager_imageRequest, null);
+        }
+    }
+
+    /**
+     * Fade the new image in over the displayed one, so the header never shows an empty frame
+     * The displayed image is kept under the new one until the end of the fade, then released
+     */
+    private static void crossfade(final ImageView imageView, final Drawable drawable, int fadeDuration, final long requestTime) {
+        //finish the running crossfade, its image becomes the displayed one
+        Object running = imageView.getTag(R.id.materialviewpager_imageCrossfade);
+        if (running instanceof ValueAnimator)
+            ((ValueAnimator) running).end();
+
+        Drawable previous = imageView.getDrawable();
+        if (previous instanceof LayerDrawable && ((LayerDrawable) previous).findDrawableByLayerId(R.id.materialviewpager_imageCurrent) != null)
+            previous = ((LayerDrawable) previous).findDrawableByLayerId(R.id.materialviewpager_imageCurrent);
+
+        if (fadeDuration <= 0) {
+            imageView.setImageDrawable(drawable);
+            releaseBitmap(previous);
+            notifyFaded(imageView, requestTime);
+            return;
+        }
+
+        //the first image fades in over the header color
+        if (previous == null)
+            previous = new ColorDrawable(Color.TRANSPARENT);
 
-        //fade to alpha=0
-        final ObjectAnimator fadeOut = ObjectAnimator.ofFloat(viewToAnimate, "alpha", 0).setDuration(fadeDuration);
-        fadeOut.setInterpolator(new DecelerateInterpolator());
-        fadeOut.addListener(new AnimatorListenerAdapter() {
+        final Drawable current = drawable.mutate();
+        current.setAlpha(0);
+
+        final Drawable previousImage = previous;
+        final LayerDrawable layers = new LayerDrawable(new Drawable[]{previous, current});
+        layers.setId(0, R.id.materialviewpager_imagePrevious);
+        layers.setId(1, R.id.materialviewpager_imageCurrent);
+        imageView.setImageDrawable(layers);
+
+        final ValueAnimator fadeIn = ValueAnimator.ofInt(0, 255).setDuration(fadeDuration);
+        fadeIn.setInterpolator(new DecelerateInterpolator());
+        fadeIn.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                current.setAlpha((Integer) animation.getAnimatedValue());
+                onFadeFrame(imageView);
+            }
+        });
+        fadeIn.addListener(new AnimatorListenerAdapter() {
             @Override
             public void onAnimationEnd(Animator animation) {
                 super.onAnimationEnd(animation);
-                //change the image when alpha=0
+                current.setAlpha(255);
+                //release the previous image, without setting a new drawable (it would restart the KenBurnsView)
+                Drawable empty = new ColorDrawable(Color.TRANSPARENT);
+                empty.setBounds(layers.getBounds());
+                layers.setDrawableByLayerId(R.id.materialviewpager_imagePrevious, empty);
+                layers.invalidateSelf();
+                releaseBitmap(previousImage);
 
-                imageView.setImageDrawable(drawable);
-
-                //then fade to alpha=1
-                final ObjectAnimator fadeIn = ObjectAnimator.ofFloat(viewToAnimate, "alpha", alpha).setDuration(fadeDuration);
-                fadeIn.setInterpolator(new AccelerateInterpolator());
-                fadeIn.start();
+                if (imageView.getTag(R.id.materialviewpager_imageCrossfade) == animation)
+                    imageView.setTag(R.id.materialviewpager_imageCrossfade, null);
+                notifyFaded(imageView, requestTime);
             }
         });
-        fadeOut.start();
+        imageView.setTag(R.id.materialviewpager_imageCrossfade, fadeIn);
+        fadeIn.start();
+    }
+
+    /**
+     * Give the bitmap of a drawable not displayed anymore to the bitmapPool, if it comes from it
+     */
+    private static void releaseBitmap(Drawable drawable) {
+        if (bitmapPool != null && drawable instanceof BitmapDrawable)
+            bitmapPool.release(((BitmapDrawable) drawable).getBitmap());
+    }
+
+    //notify the jankMonitor and the layer manager of the faded image's MaterialViewPager on each frame of a fade
+    private static void onFadeFrame(View imageView) {
+        MaterialViewPagerAnimator animator = MaterialViewPagerHelper.getAnimator(imageView);
+        if (animator == null)
+            return;
+
+        if (animator.getJankMonitor() != null)
+            animator.getJankMonitor().onHeaderState(MaterialViewPagerJankMonitor.STATE_IMAGE_FADE);
+        if (animator.getLayerManager() != null)
+            animator.getLayerManager().onHeaderState(MaterialViewPagerJankMonitor.STATE_IMAGE_FADE);
+    }
+
+    private static void notifyFaded(View imageView, long requestTime) {
+        MaterialViewPagerMetrics metrics = getMetrics(imageView);
+        if (metrics != null)
+            metrics.onImageFaded(System.nanoTime() - requestTime);
+    }
+
+    //the metrics of the MaterialViewPager containing this header image, null if not measured
+    private static MaterialViewPagerMetrics getMetrics(View imageView) {
+        MaterialViewPagerAnimator animator = MaterialViewPagerHelper.getAnimator(imageView);
+        return animator != null ? animator.getMetrics() : null;
+    }
+
+    /**
+     * @param imageLoader loads the header images, ex: an adapter of the app's image pipeline
+     */
+    public static void setImageLoader(HeaderImageLoader imageLoader) {
+        MaterialViewPagerImageHelper.imageLoader = imageLoader;
+        defaultImageLoaderResolved = true;
+    }
+
+    /**
+     * @return the loader set with setImageLoader, else the PicassoHeaderImageLoader if the materialviewpagerpicasso module is there, else null
+     */
+    public static HeaderImageLoader getImageLoader() {
+        if (imageLoader == null && !defaultImageLoaderResolved) {
+            defaultImageLoaderResolved = true;
+            try {
+                imageLoader = (HeaderImageLoader) Class.forName(PICASSO_IMAGE_LOADER).newInstance();
+            } catch (Exception e) {
+                Log.w(TAG, "no HeaderImageLoader, set one with MaterialViewPagerImageHelper.setImageLoader or add the materialviewpagerpicasso module");
+            }
+        }
+        return imageLoader;
+    }
+
+    /**
+     * Reuse the header bitmaps once replaced, for the HeaderImageLoaders decoding with HeaderBitmapPool.decode
+     * The bitmaps given to OnImageLoadListener are then overwritten after the next image change, copy them to keep them
+     *
+     * @param bitmapPool the pool, null to stop reusing
+     */
+    public static void setBitmapPool(HeaderBitmapPool bitmapPool) {
+        MaterialViewPagerImageHelper.bitmapPool = bitmapPool;
+    }
+
+    public static HeaderBitmapPool getBitmapPool() {
+        return bitmapPool;
     }
 
     public static void setImageLoadListener(MaterialViewPager.OnImageLoadListener imageLoadListener) {
@@ -12,8 +12,6 @@ import com.nineoldandroids.animation.Animator;
 import com.nineoldandroids.animation.AnimatorListenerAdapter;
 import com.nineoldandroids.animation.ObjectAnimator;
 import com.nineoldandroids.view.ViewHelper;
-import com.squareup.picasso.Callback;
-import com.squareup.picasso.Picasso;
 
 /**
  * Created by florentchampigny on 29/04/15.
@@ -44,7 +42,7 @@ public class MaterialViewPagerKenBurnsHeader extends KenBurnsView {
      * @param urlImage
      * @param fadeDuration
      *
-     * TODO : remove Picasso
+     * loaded by the HeaderImageLoader, see MaterialViewPagerImageHelper.setImageLoader
      */
     public void setImageUrl(final String urlImage, final int fadeDuration) {
         MaterialViewPagerImageHelper.setImageUrl(this, urlImage, fadeDuration);
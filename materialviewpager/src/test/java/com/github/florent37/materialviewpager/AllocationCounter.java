@@ -0,0 +1,44 @@
+package com.github.florent37.materialviewpager;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Count the bytes allocated by the current thread, on a HotSpot JVM
+ * The cost of the measure itself (it may allocate) is removed
+ */
+class AllocationCounter {
+
+    private static final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final long measureCost;
+    private long start;
+
+    AllocationCounter() {
+        if (!threadMXBean.isThreadAllocatedMemorySupported())
+            throw new IllegalStateException("the JVM can't count the allocated bytes");
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        //measure the measure, twice so its own classes are loaded
+        allocatedBytes();
+        long before = allocatedBytes();
+        long after = allocatedBytes();
+        measureCost = after - before;
+    }
+
+    private static long allocatedBytes() {
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    void start() {
+        start = allocatedBytes();
+    }
+
+    /**
+     * @return the bytes allocated since start
+     */
+    long stop() {
+        long end = allocatedBytes();
+        return Math.max(0, end - start - measureCost);
+    }
+}
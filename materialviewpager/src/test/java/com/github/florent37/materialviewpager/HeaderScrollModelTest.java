@@ -0,0 +1,221 @@
+package com.github.florent37.materialviewpager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HeaderScrollModelTest {
+
+    private static final float DELTA = 0.0001f;
+
+    private static final float SCROLL_MAX = 200;
+    private static final float SCROLL_MAX_PX = 600;
+    private static final float PARALLAX_FACTOR = 1.5f;
+
+    private static final int TOOLBAR_BOTTOM = 168;
+    private static final int TOOLBAR_LAYOUT_HEIGHT = 216;
+    private static final int TABS_TOP = 392;
+
+    private HeaderMetrics metrics;
+
+    @Before
+    public void setUp() {
+        metrics = new HeaderMetrics();
+        metrics.set(TOOLBAR_BOTTOM, 0, TOOLBAR_LAYOUT_HEIGHT, TABS_TOP, 0);
+        metrics.setLogo(100, 150, 140, 40, 0.5f);
+    }
+
+    private static HeaderScrollModel newModel(boolean hideToolbarAndTitle) {
+        return new HeaderScrollModel(SCROLL_MAX, SCROLL_MAX_PX, PARALLAX_FACTOR, hideToolbarAndTitle, false);
+    }
+
+    @Test
+    public void parallaxMovesSlowerThanTheScroll() {
+        HeaderScrollModel model = newModel(false);
+
+        model.compute(300, metrics);
+
+        assertEquals(-300 / PARALLAX_FACTOR, model.output.headerBackgroundTranslationY, DELTA);
+    }
+
+    @Test
+    public void parallaxNeverMovesTheHeaderBelowItsTop() {
+        HeaderScrollModel model = newModel(false);
+
+        //overscroll at the top
+        model.compute(-50, metrics);
+        assertEquals(0, model.output.headerBackgroundTranslationY, DELTA);
+
+        //a header background placed lower stays at y=0
+        metrics.set(TOOLBAR_BOTTOM, 0, TOOLBAR_LAYOUT_HEIGHT, TABS_TOP, 10);
+        model.compute(9, metrics);
+        assertEquals(-10, model.output.headerBackgroundTranslationY, DELTA);
+    }
+
+    @Test
+    public void parallaxFactorZeroDoesNotMoveTheHeader() {
+        HeaderScrollModel model = new HeaderScrollModel(SCROLL_MAX, SCROLL_MAX_PX, 0, false, false);
+
+        model.compute(300, metrics);
+        assertEquals(0, model.output.headerBackgroundTranslationY, DELTA);
+
+        //a header background placed lower stays at y=0
+        metrics.set(TOOLBAR_BOTTOM, 0, TOOLBAR_LAYOUT_HEIGHT, TABS_TOP, 10);
+        model.compute(400, metrics);
+        assertEquals(-10, model.output.headerBackgroundTranslationY, DELTA);
+    }
+
+    @Test
+    public void scrollablesOffsetIsClamped() {
+        HeaderScrollModel model = newModel(false);
+
+        model.compute(-20, metrics);
+        assertEquals(0, model.output.scrollablesYOffset, DELTA);
+
+        model.compute(5000, metrics);
+        assertEquals(SCROLL_MAX_PX, model.output.scrollablesYOffset, DELTA);
+    }
+
+    @Test
+    public void percentFollowsTheDistanceBetweenTabsAndToolbar() {
+        HeaderScrollModel model = newModel(false);
+
+        model.compute(0, metrics);
+        assertEquals(0, model.output.percent, DELTA);
+
+        //the tabs move with the scroll, the percent is computed from their last position
+        model.compute(100, metrics);
+        assertTrue(model.output.moveTabs);
+        assertEquals(-100, model.output.tabsTranslationY, DELTA);
+
+        model.compute(112, metrics);
+        float distance = TABS_TOP - 100 - TOOLBAR_BOTTOM;
+        assertEquals(1 - distance / metrics.initialDistance, model.output.percent, DELTA);
+        assertEquals(model.output.percent, model.getLastPercent(), DELTA);
+    }
+
+    @Test
+    public void tabsStickBelowTheToolbar() {
+        HeaderScrollModel model = newModel(false);
+
+        model.compute(1000, metrics);
+        assertEquals(TOOLBAR_BOTTOM - TABS_TOP, model.output.tabsTranslationY, DELTA);
+
+        //the tabs joined the toolbar, the percent is clamped to 1
+        model.compute(1001, metrics);
+        assertEquals(1, model.output.percent, DELTA);
+        assertTrue(model.toolbarJoinsTabs(metrics));
+        assertEquals(HeaderScrollModel.COLOR_PERCENT, model.output.colorMode);
+        assertTrue(model.output.colorToolbarJoinsTabs);
+    }
+
+    @Test
+    public void logoIsInterpolatedWithThePercent() {
+        HeaderScrollModel model = newModel(false);
+
+        model.compute(1000, metrics);
+        model.compute(1001, metrics);
+
+        assertEquals(0, model.output.logoAlpha, DELTA);
+        assertEquals(40 - 150, model.output.logoTranslationY, DELTA);
+        assertEquals(140 - 100, model.output.logoTranslationX, DELTA);
+        assertEquals(0.5f, model.output.logoScale, DELTA);
+    }
+
+    @Test
+    public void invalidMetricsOnlyComputeParallaxAndScrollables() {
+        HeaderScrollModel model = newModel(false);
+        HeaderMetrics notLaidOut = new HeaderMetrics();
+        assertFalse(notLaidOut.isValid());
+
+        assertFalse(model.compute(300, notLaidOut));
+
+        assertEquals(-300 / PARALLAX_FACTOR, model.output.headerBackgroundTranslationY, DELTA);
+        assertEquals(300, model.output.scrollablesYOffset, DELTA);
+        //not applied, the same yOffset will be computed again once laid out
+        assertEquals(-1, model.getLastYOffset(), DELTA);
+
+        assertTrue(model.compute(300, metrics));
+        assertEquals(300, model.getLastYOffset(), DELTA);
+    }
+
+    @Test
+    public void scrollDownEntersTheToolbar() {
+        HeaderScrollModel model = newModel(true);
+
+        //collapse the header, the toolbar follows the scroll up
+        for (int yOffset = 0; yOffset <= 1000; yOffset += 50) {
+            model.compute(yOffset, metrics);
+        }
+        assertTrue(model.output.moveToolbarLayout);
+
+        //scrolling down far from the top starts the toolbar enter animation, once
+        model.scrollDown(990, metrics);
+        assertTrue(model.output.startToolbarEnterAnimation);
+        assertFalse(model.output.cancelToolbarAnimation);
+
+        //the animation ended, scrolling down again does not restart it
+        model.onToolbarEnterAnimationEnd();
+        model.scrollDown(980, metrics);
+        assertFalse(model.output.startToolbarEnterAnimation);
+        assertFalse(model.output.cancelToolbarAnimation);
+    }
+
+    @Test
+    public void expandingTheHeaderCancelsTheToolbarAnimation() {
+        HeaderScrollModel model = newModel(true);
+        for (int yOffset = 0; yOffset <= 1000; yOffset += 50) {
+            model.compute(yOffset, metrics);
+        }
+        model.scrollDown(990, metrics);
+        assertTrue(model.output.startToolbarEnterAnimation);
+
+        //the header is not collapsed anymore (percent < 1)
+        model.compute(100, metrics);
+        model.compute(90, metrics);
+
+        assertTrue(model.output.cancelToolbarAnimation);
+        assertFalse(model.output.startToolbarEnterAnimation);
+    }
+
+    @Test
+    public void backToTopCancelsTheToolbarAnimation() {
+        HeaderScrollModel model = newModel(true);
+        for (int yOffset = 0; yOffset <= 1000; yOffset += 50) {
+            model.compute(yOffset, metrics);
+        }
+        model.scrollDown(990, metrics);
+
+        //quick scroll to the top
+        model.compute(0, metrics);
+
+        assertTrue(model.output.cancelToolbarAnimation);
+        assertTrue(model.output.moveToolbarLayout);
+        assertEquals(0, model.output.toolbarLayoutTranslationY, DELTA);
+    }
+
+    @Test
+    public void animationStartedAndCancelledInTheSameComputeIsNeverStarted() {
+        HeaderScrollModel model = newModel(true);
+        //a small toolbar layout, the toolbar enters before the header is collapsed
+        metrics.set(TOOLBAR_BOTTOM, 0, 100, TABS_TOP, 0);
+        model.compute(100, metrics);
+        model.compute(200, metrics);
+
+        //scroll down far from the top while the header is not collapsed
+        model.compute(190, metrics);
+        assertTrue(model.output.percent < 1);
+
+        assertFalse(model.output.startToolbarEnterAnimation);
+        assertFalse(model.output.cancelToolbarAnimation);
+    }
+
+    @Test
+    public void colorWithAlphaOnlyChangesTheAlpha() {
+        assertEquals(0x80123456, HeaderScrollModel.colorWithAlpha(0xFF123456, 128 / 255f));
+        assertEquals(0x00123456, HeaderScrollModel.colorWithAlpha(0xFF123456, 0));
+    }
+}
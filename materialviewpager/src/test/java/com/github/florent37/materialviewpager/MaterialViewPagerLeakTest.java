@@ -0,0 +1,107 @@
+package com.github.florent37.materialviewpager;
+
+import android.app.Activity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ActivityController;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertSame;
+
+/**
+ * A rotation destroys the activity and creates a new one with a new MaterialViewPager
+ * The destroyed activities & their animators must not be kept by MaterialViewPagerHelper
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MaterialViewPagerLeakTest {
+
+    private static final int RECREATIONS = 100;
+    //recreations before measuring the heap, once Robolectric & the classes are loaded
+    private static final int WARMUP_RECREATIONS = 10;
+    //the retained heap may grow by this much over the other recreations, a leaked activity retains more (views, bitmaps)
+    private static final long MAX_HEAP_GROWTH_BYTES = 8 * 1024 * 1024;
+
+    private final List<WeakReference<Activity>> activities = new ArrayList<>();
+    private final List<WeakReference<MaterialViewPagerAnimator>> animators = new ArrayList<>();
+
+    //in its own method, so the activity isn't kept by a local variable of the test
+    private void createAndDestroy() {
+        ActivityController<Activity> controller = Robolectric.buildActivity(Activity.class).create();
+        Activity activity = controller.get();
+        activity.setTheme(android.support.v7.appcompat.R.style.Theme_AppCompat_Light_NoActionBar);
+
+        MaterialViewPager materialViewPager = new MaterialViewPager(activity, null);
+        materialViewPager.onFinishInflate();
+        activity.setContentView(materialViewPager);
+        controller.start().resume().visible();
+
+        //the new activity gets its own animator, not the one of the destroyed activity
+        assertSame(materialViewPager.animator, MaterialViewPagerHelper.getAnimator(activity));
+
+        activities.add(new WeakReference<>(activity));
+        animators.add(new WeakReference<>(materialViewPager.animator));
+
+        controller.pause().stop().destroy();
+
+        //unregistered by the ActivityLifecycleCallbacks, even if the MaterialViewPager is never detached
+        assertNull(MaterialViewPagerHelper.getAnimator(activity));
+    }
+
+    @Test
+    public void recreatedActivitiesAreReleased() {
+        for (int i = 0; i < WARMUP_RECREATIONS; ++i) {
+            createAndDestroy();
+        }
+        long warmHeap = retainedHeap();
+
+        for (int i = WARMUP_RECREATIONS; i < RECREATIONS; ++i) {
+            createAndDestroy();
+        }
+        long heapGrowth = retainedHeap() - warmHeap;
+
+        assertReleased("activity", activities);
+        assertReleased("animator", animators);
+        assertTrue("retained heap grew by " + heapGrowth + " bytes over " + (RECREATIONS - WARMUP_RECREATIONS) + " recreations",
+                heapGrowth < MAX_HEAP_GROWTH_BYTES);
+    }
+
+    //the used heap after a gc, once the posted runnables (deferred inflation, prefetch) released the views they hold
+    private static long retainedHeap() {
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; ++i) {
+            System.gc();
+            System.runFinalization();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void assertReleased(String name, List<? extends WeakReference<?>> references) {
+        for (int i = 0; i < 20 && !allReleased(references); ++i) {
+            System.gc();
+            System.runFinalization();
+        }
+        for (int i = 0; i < references.size(); ++i) {
+            assertNull(name + " " + i + " is still referenced", references.get(i).get());
+        }
+    }
+
+    private static boolean allReleased(List<? extends WeakReference<?>> references) {
+        for (WeakReference<?> reference : references) {
+            if (reference.get() != null)
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.florent37.materialviewpager;
+
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replay scroll traces through the MaterialViewPagerAnimator of a MaterialViewPager with RecyclerView pages
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MaterialViewPagerScrollTraceReplayTest {
+
+    private static final int PAGES = 4;
+
+    private ScrollTraceHarness harness;
+
+    @Before
+    public void setUp() {
+        harness = new ScrollTraceHarness(PAGES);
+    }
+
+    @After
+    public void tearDown() {
+        harness.destroy();
+    }
+
+    @Test
+    public void replayMovesTheHeaderAndSyncsTheOtherPages() {
+        MaterialViewPagerScrollables scrollables = harness.animator.scrollables;
+        assertEquals(PAGES, scrollables.count());
+
+        //scroll slot 0 down
+        MaterialViewPagerScrollTrace trace = new MaterialViewPagerScrollTrace(32);
+        for (int i = 1; i <= 32; ++i) {
+            trace.record(0, i * 10, i);
+        }
+
+        MaterialViewPagerScrollTrace.ReplayResult result = trace.replay(harness.animator);
+
+        assertEquals(32, result.events);
+        assertTrue("the header views were moved", result.propertyWrites > 0);
+
+        //the other pages followed the scroll of slot 0
+        int offset = scrollables.getAppliedYOffset(1);
+        assertTrue(offset > 0);
+        for (int slot = 2; slot < PAGES; ++slot) {
+            assertEquals(offset, scrollables.getAppliedYOffset(slot));
+        }
+    }
+
+    @Test
+    public void recordedTraceReplaysTheSameWrites() throws IOException {
+        //record a drag of the first page, as the scroll listener would report it
+        MaterialViewPagerScrollTrace recording = new MaterialViewPagerScrollTrace();
+        harness.animator.setScrollTrace(recording);
+        View source = harness.animator.scrollables.get(0);
+        MaterialViewPagerScrollTrace drag = ScrollTraceHarness.dragAndBack(256, 12);
+        for (int i = 0; i < drag.size(); ++i) {
+            harness.animator.onMaterialScrolled(source, drag.getYOffset(i));
+        }
+        harness.animator.setScrollTrace(null);
+        assertEquals(drag.size(), recording.size());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recording.writeTo(out);
+        MaterialViewPagerScrollTrace trace = MaterialViewPagerScrollTrace.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        //the drag ends at the top, each replay starts from the same state
+        MaterialViewPagerScrollTrace.ReplayResult first = trace.replay(harness.animator);
+        MaterialViewPagerScrollTrace.ReplayResult second = trace.replay(harness.animator);
+
+        assertEquals(recording.size(), first.events);
+        assertEquals(first.propertyWrites, second.propertyWrites);
+        assertEquals(first.skippedPropertyWrites, second.skippedPropertyWrites);
+        //the replayed events are not recorded
+        assertEquals(drag.size(), recording.size());
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.florent37.materialviewpager;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class MaterialViewPagerScrollTraceTest {
+
+    private static MaterialViewPagerScrollTrace roundTrip(MaterialViewPagerScrollTrace trace) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trace.writeTo(out);
+        return MaterialViewPagerScrollTrace.readFrom(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static void assertSameEvents(MaterialViewPagerScrollTrace expected, MaterialViewPagerScrollTrace actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.getTimestamp(i), actual.getTimestamp(i));
+            assertEquals(expected.getSlot(i), actual.getSlot(i));
+            assertEquals(expected.getYOffset(i), actual.getYOffset(i), 0);
+        }
+    }
+
+    @Test
+    public void writeToReadFromRoundTrip() throws IOException {
+        MaterialViewPagerScrollTrace trace = new MaterialViewPagerScrollTrace(8);
+        trace.record(0, 12.5f, 100);
+        trace.record(2, 30, 200);
+        trace.record(MaterialViewPagerScrollTrace.NO_SLOT, 0, 300);
+
+        assertSameEvents(trace, roundTrip(trace));
+    }
+
+    @Test
+    public void ringBufferKeepsTheNewestEvents() throws IOException {
+        MaterialViewPagerScrollTrace trace = new MaterialViewPagerScrollTrace(3);
+        for (int i = 0; i < 5; ++i) {
+            trace.record(i, i * 10, i * 100);
+        }
+
+        assertEquals(3, trace.size());
+        assertEquals(2, trace.getSlot(0));
+        assertEquals(4, trace.getSlot(2));
+
+        //exported from the oldest to the newest
+        assertSameEvents(trace, roundTrip(trace));
+    }
+
+    @Test
+    public void emptyTraceRoundTrip() throws IOException {
+        MaterialViewPagerScrollTrace trace = new MaterialViewPagerScrollTrace();
+        assertEquals(0, roundTrip(trace).size());
+    }
+
+    @Test(expected = IOException.class)
+    public void readFromRejectsAnotherFormat() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DataOutputStream(out).writeInt(0xCAFEBABE);
+        MaterialViewPagerScrollTrace.readFrom(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test(expected = IOException.class)
+    public void readFromRejectsAnotherVersion() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MaterialViewPagerScrollTrace.MAGIC);
+        data.writeInt(MaterialViewPagerScrollTrace.VERSION + 1);
+        data.writeInt(0);
+        MaterialViewPagerScrollTrace.readFrom(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.florent37.materialviewpager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The code running on each scroll event must not allocate (no GC during a fling)
+ * Replays a scroll trace through the MaterialViewPagerAnimator of a MaterialViewPager with registered RecyclerViews
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ScrollHotPathAllocationTest {
+
+    private static final int PAGES = 4;
+    private static final int EVENTS = 4096;
+
+    private ScrollTraceHarness harness;
+    private MaterialViewPagerScrollTrace trace;
+
+    @Before
+    public void setUp() {
+        harness = new ScrollTraceHarness(PAGES);
+        //scroll down 1536px then back to the top, again and again: each replay starts & ends at the top
+        trace = new MaterialViewPagerScrollTrace(EVENTS);
+        MaterialViewPagerScrollTrace dragAndBack = ScrollTraceHarness.dragAndBack(128, 24);
+        for (int i = 0; i < EVENTS; ++i) {
+            int event = i % dragAndBack.size();
+            trace.record(dragAndBack.getSlot(event), dragAndBack.getYOffset(event), i * 16666667L);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        harness.destroy();
+    }
+
+    @Test
+    public void scrollDoesNotAllocate() {
+        //load the classes & let the JIT compile the hot path
+        MaterialViewPagerScrollTrace.ReplayResult result = null;
+        for (int i = 0; i < 20; ++i) {
+            result = trace.replay(harness.animator);
+        }
+        assertTrue("the header views were moved", result.propertyWrites > 0);
+
+        //the JIT may allocate once while compiling, an allocating scroll event allocates on each run
+        AllocationCounter allocationCounter = new AllocationCounter();
+        long allocatedBytes = Long.MAX_VALUE;
+        for (int i = 0; i < 5; ++i) {
+            allocationCounter.start();
+            trace.replay(harness.animator);
+            allocatedBytes = Math.min(allocatedBytes, allocationCounter.stop());
+        }
+
+        //the replay allocates its ReplayResult once, an allocating event would allocate EVENTS times
+        assertEquals("bytes allocated per scroll event (" + allocatedBytes + " bytes for " + EVENTS + " events)",
+                0, allocatedBytes / EVENTS);
+    }
+}
@@ -0,0 +1,146 @@
+package com.github.florent37.materialviewpager;
+
+import android.app.Activity;
+import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewPager;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.github.florent37.materialviewpager.adapter.RecyclerViewMaterialAdapter;
+
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ActivityController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A MaterialViewPager with a RecyclerView on each page, laid out in a Robolectric activity
+ * Replays MaterialViewPagerScrollTraces through its real MaterialViewPagerAnimator, on the JVM
+ *
+ * Used from tests run with RobolectricGradleTestRunner
+ */
+class ScrollTraceHarness {
+
+    static final int WIDTH = 1080;
+    static final int HEIGHT = 1920;
+
+    private static final int ITEMS = 100;
+    private static final int ITEM_HEIGHT = 200;
+
+    final ActivityController<Activity> controller;
+    final MaterialViewPager materialViewPager;
+    final MaterialViewPagerAnimator animator;
+    final List<RecyclerView> recyclerViews = new ArrayList<>();
+
+    /**
+     * @param pages number of pages, each one a RecyclerView registered to the animator
+     */
+    ScrollTraceHarness(int pages) {
+        controller = Robolectric.buildActivity(Activity.class).create();
+        Activity activity = controller.get();
+        activity.setTheme(android.support.v7.appcompat.R.style.Theme_AppCompat_Light_NoActionBar);
+
+        materialViewPager = new MaterialViewPager(activity, null);
+        materialViewPager.onFinishInflate();
+        activity.setContentView(materialViewPager);
+
+        //all the pages are kept attached, as the pages next to the current one
+        ViewPager viewPager = materialViewPager.getViewPager();
+        viewPager.setOffscreenPageLimit(pages);
+        viewPager.setAdapter(new RecyclerViewPagerAdapter(pages));
+
+        controller.start().resume().visible();
+        layout();
+
+        animator = materialViewPager.animator;
+        for (RecyclerView recyclerView : recyclerViews) {
+            animator.registerRecyclerView(recyclerView, null);
+        }
+        //the registrations post their first sync, and the deferred header inflation
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        layout();
+    }
+
+    //Robolectric doesn't lay out the window, measure & lay out as a full screen
+    void layout() {
+        materialViewPager.measure(
+                View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        materialViewPager.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    void destroy() {
+        controller.pause().stop().destroy();
+    }
+
+    /**
+     * @return a drag of slot 0 down by dy per event then back to the top, events apart of a 60fps frame
+     */
+    static MaterialViewPagerScrollTrace dragAndBack(int events, int dy) {
+        MaterialViewPagerScrollTrace trace = new MaterialViewPagerScrollTrace(events);
+        long timestamp = 1000000000L;
+        int yOffset = 0;
+        for (int i = 0; i < events; ++i) {
+            yOffset += i < events / 2 ? dy : -dy;
+            timestamp += 16666667L;
+            trace.record(0, yOffset, timestamp);
+        }
+        return trace;
+    }
+
+    private class RecyclerViewPagerAdapter extends PagerAdapter {
+        private final int pages;
+
+        RecyclerViewPagerAdapter(int pages) {
+            this.pages = pages;
+        }
+
+        @Override
+        public int getCount() {
+            return pages;
+        }
+
+        @Override
+        public Object instantiateItem(ViewGroup container, int position) {
+            RecyclerView recyclerView = new RecyclerView(container.getContext());
+            recyclerView.setLayoutManager(new LinearLayoutManager(container.getContext()));
+            recyclerView.setAdapter(new RecyclerViewMaterialAdapter(new ItemAdapter()));
+            container.addView(recyclerView);
+            recyclerViews.add(recyclerView);
+            return recyclerView;
+        }
+
+        @Override
+        public void destroyItem(ViewGroup container, int position, Object object) {
+            container.removeView((View) object);
+        }
+
+        @Override
+        public boolean isViewFromObject(View view, Object object) {
+            return view == object;
+        }
+    }
+
+    private static class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            View item = new View(parent.getContext());
+            item.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+            return new RecyclerView.ViewHolder(item) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return ITEMS;
+        }
+    }
+}
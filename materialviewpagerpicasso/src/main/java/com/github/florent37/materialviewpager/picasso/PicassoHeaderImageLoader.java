@@ -0,0 +1,256 @@
+package com.github.florent37.materialviewpager.picasso;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import com.github.florent37.materialviewpager.header.HeaderBitmapPool;
+import com.github.florent37.materialviewpager.header.HeaderImageLoader;
+import com.github.florent37.materialviewpager.header.MaterialViewPagerImageHelper;
+import com.squareup.picasso.Downloader;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+import com.squareup.picasso.UrlConnectionDownloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * HeaderImageLoader using Picasso, center cropped to the header size
+ * Used by default when this module is a dependency, or set it with your own Picasso instance to share its caches :
+ * MaterialViewPagerImageHelper.setImageLoader(new PicassoHeaderImageLoader(picasso))
+ *
+ * With a HeaderBitmapPool (MaterialViewPagerImageHelper.setBitmapPool), Picasso can't decode into a reused bitmap :
+ * the image is downloaded (http cache of UrlConnectionDownloader) then decoded here by the pool, without the Picasso memory cache
+ * the prefetches then only warm the http cache, on their own background thread, so a displayed image never waits behind them
+ */
+public class PicassoHeaderImageLoader implements HeaderImageLoader {
+
+    private static final String TAG = "PicassoHeaderImageLoader";
+
+    //one decode at a time, the pool decodes into the same buffers
+    private static final ExecutorService pooledExecutor = Executors.newSingleThreadExecutor();
+
+    //prefetch downloads, at a lower priority than the displayed images
+    private static final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "MaterialViewPager-prefetch");
+        }
+    });
+
+    //null to use Picasso.with(context)
+    private final Picasso picasso;
+
+    //Picasso only keeps weak references to its targets, they are kept here until loaded or cancelled
+    private final Map<HeaderImageLoader.Target, com.squareup.picasso.Target> targets = new HashMap<>();
+
+    //loads decoded by the HeaderBitmapPool, until delivered or cancelled
+    private final Map<HeaderImageLoader.Target, PooledLoad> pooledLoads = new HashMap<>();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Downloader downloader;
+
+    public PicassoHeaderImageLoader() {
+        this(null);
+    }
+
+    public PicassoHeaderImageLoader(Picasso picasso) {
+        this.picasso = picasso;
+    }
+
+    private Picasso getPicasso(Context context) {
+        return picasso != null ? picasso : Picasso.with(context);
+    }
+
+    private RequestCreator request(Context context, String url, int width, int height) {
+        RequestCreator request = getPicasso(context).load(url);
+        if (width > 0 && height > 0)
+            request.resize(width, height).centerCrop();
+        return request;
+    }
+
+    @Override
+    public void load(Context context, String url, int width, int height, final HeaderImageLoader.Target target) {
+        cancel(context, target);
+
+        HeaderBitmapPool bitmapPool = MaterialViewPagerImageHelper.getBitmapPool();
+        if (bitmapPool != null) {
+            PooledLoad pooledLoad = new PooledLoad(context, url, width, height, bitmapPool, target);
+            pooledLoads.put(target, pooledLoad);
+            pooledExecutor.execute(pooledLoad);
+            return;
+        }
+
+        com.squareup.picasso.Target picassoTarget = new com.squareup.picasso.Target() {
+            @Override
+            public void onBitmapLoaded(Bitmap bitmap, Picasso.LoadedFrom from) {
+                targets.remove(target);
+                target.onImageLoaded(bitmap);
+            }
+
+            @Override
+            public void onBitmapFailed(Drawable errorDrawable) {
+                targets.remove(target);
+                target.onImageFailed();
+            }
+
+            @Override
+            public void onPrepareLoad(Drawable placeHolderDrawable) {
+            }
+        };
+        targets.put(target, picassoTarget);
+        request(context, url, width, height).into(picassoTarget);
+    }
+
+    @Override
+    public void cancel(Context context, HeaderImageLoader.Target target) {
+        com.squareup.picasso.Target picassoTarget = targets.remove(target);
+        if (picassoTarget != null)
+            getPicasso(context).cancelRequest(picassoTarget);
+
+        PooledLoad pooledLoad = pooledLoads.remove(target);
+        if (pooledLoad != null)
+            pooledLoad.cancelled = true;
+    }
+
+    @Override
+    public void prefetch(final Context context, final String url, int width, int height) {
+        if (MaterialViewPagerImageHelper.getBitmapPool() == null) {
+            request(context, url, width, height).fetch();
+            return;
+        }
+
+        //only warm the http cache, the bitmap is decoded into the pool when displayed
+        final Uri uri = parse(url);
+        if (!isNetwork(uri))
+            return;
+        prefetchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    InputStream in = open(context, uri);
+                    try {
+                        byte[] buffer = new byte[8 * 1024];
+                        while (in.read(buffer) != -1) {
+                        }
+                    } finally {
+                        in.close();
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "cannot prefetch " + url, e);
+                }
+            }
+        });
+    }
+
+    private static Uri parse(String url) {
+        Uri uri = Uri.parse(url);
+        //a path without scheme is a file, as for Picasso
+        return uri.getScheme() == null ? Uri.fromFile(new File(url)) : uri;
+    }
+
+    private static boolean isNetwork(Uri uri) {
+        return "http".equals(uri.getScheme()) || "https".equals(uri.getScheme());
+    }
+
+    //called on the pooledExecutor or the prefetchExecutor
+    private InputStream open(Context context, Uri uri) throws IOException {
+        if (isNetwork(uri)) {
+            synchronized (this) {
+                if (downloader == null)
+                    downloader = new UrlConnectionDownloader(context.getApplicationContext());
+            }
+            Downloader.Response response = downloader.load(uri, 0);
+            if (response == null || response.getInputStream() == null)
+                throw new IOException("no stream for " + uri);
+            return response.getInputStream();
+        }
+        //file, content, android.resource
+        InputStream in = context.getContentResolver().openInputStream(uri);
+        if (in == null)
+            throw new IOException("no stream for " + uri);
+        return in;
+    }
+
+    /**
+     * Download then decode with the HeaderBitmapPool, on the pooledExecutor
+     * A cancelled load gives its bitmap back to the pool instead of delivering it
+     */
+    private class PooledLoad implements Runnable {
+        final Context context;
+        final String url;
+        final int width;
+        final int height;
+        final HeaderBitmapPool bitmapPool;
+        final HeaderImageLoader.Target target;
+
+        volatile boolean cancelled = false;
+
+        PooledLoad(Context context, String url, int width, int height, HeaderBitmapPool bitmapPool, HeaderImageLoader.Target target) {
+            this.context = context.getApplicationContext();
+            this.url = url;
+            this.width = width;
+            this.height = height;
+            this.bitmapPool = bitmapPool;
+            this.target = target;
+        }
+
+        @Override
+        public void run() {
+            //replaced before its turn (fast swipe), don't download nor decode
+            if (cancelled)
+                return;
+
+            Bitmap bitmap = null;
+            try {
+                InputStream in = open(context, parse(url));
+                try {
+                    bitmap = bitmapPool.decode(in, width, height);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "cannot load " + url, e);
+            }
+
+            final Bitmap loaded = bitmap;
+            if (cancelled) {
+                bitmapPool.release(loaded);
+                return;
+            }
+
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (cancelled) {
+                        bitmapPool.release(loaded);
+                        return;
+                    }
+                    pooledLoads.remove(target);
+                    if (loaded != null)
+                        target.onImageLoaded(loaded);
+                    else
+                        target.onImageFailed();
+                }
+            });
+        }
+    }
+}